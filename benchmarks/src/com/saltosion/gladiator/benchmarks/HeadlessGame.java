@@ -0,0 +1,98 @@
+/**
+ * GladiatorBrawler is a 2D swordfighting game.
+ * Copyright (C) 2015 Jeasonfire/Allexit
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.saltosion.gladiator.benchmarks;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.saltosion.gladiator.util.SpriteLoader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.IntBuffer;
+
+/**
+ * Starts libGDX without a window, so that the game code can be run outside
+ * of the game. The headless backend has no OpenGL, so a GL20 that does
+ * nothing is installed in its place: textures, sprites and shaders can be
+ * created, but nothing is drawn.
+ *
+ * The assets are loaded from the working directory, which has to be the
+ * assets directory of the core project.
+ */
+public class HeadlessGame {
+
+	private static boolean initialized = false;
+
+	public static synchronized void initialize() {
+		if (initialized) {
+			return;
+		}
+		HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+		// The game isn't rendered, only the main loop of the backend needs to idle
+		config.renderInterval = 1f;
+		new HeadlessApplication(new ApplicationAdapter() {
+		}, config);
+
+		GL20 gl = (GL20) Proxy.newProxyInstance(GL20.class.getClassLoader(),
+				new Class<?>[]{GL20.class}, new NoOpGL());
+		Gdx.gl = gl;
+		Gdx.gl20 = gl;
+		// The no-op shaders don't have any uniforms to set
+		ShaderProgram.pedantic = false;
+
+		SpriteLoader.loadAll();
+		initialized = true;
+	}
+
+	/**
+	 * Answers every GL call with a zero, except the calls that create objects
+	 * and the shader status queries, which report success.
+	 */
+	private static class NoOpGL implements InvocationHandler {
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			String name = method.getName();
+			if ((name.equals("glGetShaderiv") || name.equals("glGetProgramiv"))
+					&& ((Integer) args[1] == GL20.GL_COMPILE_STATUS || (Integer) args[1] == GL20.GL_LINK_STATUS)) {
+				IntBuffer params = (IntBuffer) args[2];
+				params.put(params.position(), GL20.GL_TRUE);
+			}
+
+			Class<?> type = method.getReturnType();
+			if (name.startsWith("glCreate")) {
+				return 1;
+			} else if (type == boolean.class) {
+				return false;
+			} else if (type == int.class) {
+				return 0;
+			} else if (type == float.class) {
+				return 0f;
+			} else if (type == String.class) {
+				return "";
+			}
+			return null;
+		}
+
+	}
+
+}
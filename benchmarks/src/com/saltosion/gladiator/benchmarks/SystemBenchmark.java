@@ -0,0 +1,197 @@
+/**
+ * GladiatorBrawler is a 2D swordfighting game.
+ * Copyright (C) 2015 Jeasonfire/Allexit
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.saltosion.gladiator.benchmarks;
+
+import com.badlogic.ashley.core.ComponentMapper;
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntityListener;
+import com.badlogic.gdx.math.Vector2;
+import com.saltosion.gladiator.components.CDestructive;
+import com.saltosion.gladiator.components.CParticle;
+import com.saltosion.gladiator.components.CPhysics;
+import com.saltosion.gladiator.level.EntityFactory;
+import com.saltosion.gladiator.level.LevelFactory;
+import com.saltosion.gladiator.systems.AISystem;
+import com.saltosion.gladiator.systems.CombatSystem;
+import com.saltosion.gladiator.systems.MiscManagerSystem;
+import com.saltosion.gladiator.systems.ParticleSystem;
+import com.saltosion.gladiator.systems.PhysicsSystem;
+import com.saltosion.gladiator.systems.RenderingSystem;
+import com.saltosion.gladiator.util.AppUtil;
+import com.saltosion.gladiator.util.Direction;
+import com.saltosion.gladiator.util.Jukebox;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the update of each entity system on an arena full of gladiators,
+ * swing hitboxes and blood particles. Run with the gc profiler (the jmh task
+ * of this project does) to see the allocation rate of every system as well.
+ *
+ * The arena is rebuilt for each iteration. The gladiators walk into each
+ * other but never attack, and the hitboxes and particles don't expire, so the
+ * amount of entities stays the same during an iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SystemBenchmark {
+
+	private static final float DELTA = 1 / 60f;
+	private static final int PARTICLES_PER_GLADIATOR = 8;
+	private static final ComponentMapper<CPhysics> pm = ComponentMapper.getFor(CPhysics.class);
+
+	@Param({"10", "100", "500"})
+	public int gladiators;
+
+	private Engine engine;
+	private PhysicsSystem physicsSystem;
+	private AISystem aiSystem;
+	private CombatSystem combatSystem;
+	private ParticleSystem particleSystem;
+	private MiscManagerSystem miscManagerSystem;
+
+	@Setup(Level.Trial)
+	public void setupEngine() {
+		HeadlessGame.initialize();
+
+		engine = new Engine();
+		AppUtil.engine = engine;
+		AppUtil.jukebox = new Jukebox();
+		AppUtil.entityFactory = new EntityFactory();
+		AppUtil.levelFactory = new LevelFactory();
+
+		physicsSystem = new PhysicsSystem();
+		aiSystem = new AISystem();
+		combatSystem = new CombatSystem();
+		particleSystem = new ParticleSystem();
+		miscManagerSystem = new MiscManagerSystem();
+		AppUtil.physicsSystem = physicsSystem;
+		engine.addSystem(physicsSystem);
+		engine.addSystem(combatSystem);
+		engine.addSystem(miscManagerSystem);
+		engine.addSystem(aiSystem);
+		engine.addSystem(particleSystem);
+
+		// The level sets the camera bounds, the rendering system is never updated
+		RenderingSystem renderingSystem = new RenderingSystem();
+		renderingSystem.setProcessing(false);
+		engine.addSystem(renderingSystem);
+
+		engine.addEntityListener(new EntityListener() {
+			@Override
+			public void entityAdded(Entity entity) {
+				updateEntities();
+			}
+
+			@Override
+			public void entityRemoved(Entity entity) {
+				updateEntities();
+			}
+		});
+	}
+
+	@Setup(Level.Iteration)
+	public void createArena() {
+		AppUtil.levelFactory.createLevelBase();
+
+		float width = engine.getSystem(RenderingSystem.class).getXMax() * 2 - 2;
+		for (int i = 0; i < gladiators; i++) {
+			Vector2 pos = new Vector2(-width / 2 + width * (i + 0.5f) / gladiators, (i % 4) * 3.5f);
+			Direction direction = i % 2 == 0 ? Direction.RIGHT : Direction.LEFT;
+			Entity gladiator = AppUtil.entityFactory.createEnemy(pos, direction);
+			CPhysics physics = pm.get(gladiator);
+			physics.movingRight = direction == Direction.RIGHT;
+			physics.movingLeft = direction == Direction.LEFT;
+
+			// Above the heads of the gladiators, so that nobody gets hurt
+			combatSystem.createSwingHitbox(gladiator, Direction.UP, pos.cpy().add(0, 8), Float.MAX_VALUE);
+
+			for (int j = 0; j < PARTICLES_PER_GLADIATOR; j++) {
+				Entity fx = new Entity();
+				fx.add(new CParticle().setColor(1, 0, 0, 1).setDecayTime(Float.MAX_VALUE)
+						.setVelocity(j - PARTICLES_PER_GLADIATOR / 2, j).setGravity(0, -10)
+						.setPosition(pos.x, pos.y).setSize(0.2f, 0.2f));
+				// Never runs out, but gives the misc manager something to count down
+				fx.add(new CDestructive(Float.MAX_VALUE));
+				engine.addEntity(fx);
+			}
+		}
+	}
+
+	@TearDown(Level.Iteration)
+	public void clearArena() {
+		engine.removeAllEntities();
+	}
+
+	@TearDown(Level.Trial)
+	public void removeEngine() {
+		engine.removeSystem(physicsSystem);
+	}
+
+	private void updateEntities() {
+		physicsSystem.updateEntities(engine);
+		combatSystem.updateEntities(engine);
+		miscManagerSystem.updateEntities(engine);
+		aiSystem.updateEntities(engine);
+		particleSystem.updateEntities(engine);
+		engine.getSystem(RenderingSystem.class).updateEntities(engine);
+	}
+
+	@Benchmark
+	public void physics() {
+		physicsSystem.update(DELTA);
+	}
+
+	@Benchmark
+	public void ai() {
+		aiSystem.update(DELTA);
+	}
+
+	@Benchmark
+	public void combat() {
+		combatSystem.update(DELTA);
+	}
+
+	@Benchmark
+	public void particles() {
+		particleSystem.update(DELTA);
+	}
+
+	@Benchmark
+	public void miscManager() {
+		miscManagerSystem.update(DELTA);
+	}
+
+}
@@ -20,8 +20,14 @@ package com.saltosion.gladiator;
 import com.badlogic.ashley.core.Engine;
 import com.badlogic.ashley.core.Entity;
 import com.badlogic.ashley.core.EntityListener;
+import com.badlogic.ashley.core.Family;
 import com.badlogic.gdx.ApplicationAdapter;
 import com.badlogic.gdx.Gdx;
+import com.saltosion.gladiator.components.CAI;
+import com.saltosion.gladiator.components.CCombat;
+import com.saltosion.gladiator.components.CParticle;
+import com.saltosion.gladiator.components.CPhysics;
+import com.saltosion.gladiator.components.CRenderedObject;
 import com.saltosion.gladiator.gui.GUIManager;
 import com.saltosion.gladiator.input.InputHandler;
 import com.saltosion.gladiator.level.EntityFactory;
@@ -29,6 +35,8 @@ import com.saltosion.gladiator.level.LevelFactory;
 import com.saltosion.gladiator.state.BaseState;
 import com.saltosion.gladiator.state.IntroState;
 import com.saltosion.gladiator.systems.AISystem;
+import com.saltosion.gladiator.systems.BasePhysicsSystem;
+import com.saltosion.gladiator.systems.Box2DPhysicsSystem;
 import com.saltosion.gladiator.systems.CombatSystem;
 import com.saltosion.gladiator.systems.MiscManagerSystem;
 import com.saltosion.gladiator.systems.ParticleSystem;
@@ -38,6 +46,8 @@ import com.saltosion.gladiator.util.AppUtil;
 import com.saltosion.gladiator.util.AudioLoader;
 import com.saltosion.gladiator.util.Jukebox;
 import com.saltosion.gladiator.util.Log;
+import com.saltosion.gladiator.util.ProfiledEngine;
+import com.saltosion.gladiator.util.SimulationThread;
 import com.saltosion.gladiator.util.SpriteLoader;
 
 public class GladiatorBrawler extends ApplicationAdapter {
@@ -48,15 +58,46 @@ public class GladiatorBrawler extends ApplicationAdapter {
 	private GUIManager guiManager;
 	private InputHandler inputHandler;
 	private Jukebox jukebox;
+	private final boolean box2dPhysics;
+	private final boolean threaded;
+	private SimulationThread simulationThread;
 
 	public static BaseState currentState;
 
+	public GladiatorBrawler() {
+		this(false);
+	}
+
+	/**
+	 * @param box2dPhysics Use the Box2D based physics system instead of the
+	 * default one
+	 */
+	public GladiatorBrawler(boolean box2dPhysics) {
+		this(box2dPhysics, false);
+	}
+
+	/**
+	 * @param box2dPhysics Use the Box2D based physics system instead of the
+	 * default one
+	 * @param threaded Update the engine on a simulation thread of its own,
+	 * instead of once per frame on the GL thread
+	 */
+	public GladiatorBrawler(boolean box2dPhysics, boolean threaded) {
+		this.box2dPhysics = box2dPhysics;
+		this.threaded = threaded;
+	}
+
 	@Override
 	public void create() {
 		Log.info("Starting up the game");
 
 		// Initialize the Engine
-		engine = new Engine();
+		engine = new ProfiledEngine()
+				.addFamily("bodies", Family.getFor(CPhysics.class))
+				.addFamily("rendered", Family.getFor(CRenderedObject.class))
+				.addFamily("fighters", Family.getFor(CCombat.class))
+				.addFamily("AI", Family.getFor(CAI.class))
+				.addFamily("particles", Family.getFor(CParticle.class));
 		AppUtil.engine = engine;
 		setupSystems();
 
@@ -85,11 +126,20 @@ public class GladiatorBrawler extends ApplicationAdapter {
 		BaseState.setMainClass(this);
 		setState(new IntroState());
 
+		if (threaded) {
+			engine.getSystem(RenderingSystem.class).setThreaded(true);
+			simulationThread = new SimulationThread(engine);
+			simulationThread.start();
+			Log.info("Simulating on a separate thread");
+		}
+
 		Log.info("Successfully started the game.");
 	}
 
 	private void setupSystems() {
-		engine.addSystem(new PhysicsSystem());
+		BasePhysicsSystem physicsSystem = box2dPhysics ? new Box2DPhysicsSystem() : new PhysicsSystem();
+		AppUtil.physicsSystem = physicsSystem;
+		engine.addSystem(physicsSystem);
 		engine.addSystem(new RenderingSystem());
 		engine.addSystem(new CombatSystem());
 		engine.addSystem(new MiscManagerSystem());
@@ -98,8 +148,7 @@ public class GladiatorBrawler extends ApplicationAdapter {
 		engine.addEntityListener(new EntityListener() {
 			@Override
 			public void entityAdded(Entity entity) {
-				PhysicsSystem ps = engine.getSystem(PhysicsSystem.class);
-				ps.updateEntities(engine);
+				AppUtil.physicsSystem.updateEntities(engine);
 				RenderingSystem rs = engine.getSystem(RenderingSystem.class);
 				rs.updateEntities(engine);
 				CombatSystem cs = engine.getSystem(CombatSystem.class);
@@ -112,8 +161,7 @@ public class GladiatorBrawler extends ApplicationAdapter {
 
 			@Override
 			public void entityRemoved(Entity entity) {
-				PhysicsSystem ps = engine.getSystem(PhysicsSystem.class);
-				ps.updateEntities(engine);
+				AppUtil.physicsSystem.updateEntities(engine);
 				RenderingSystem rs = engine.getSystem(RenderingSystem.class);
 				rs.updateEntities(engine);
 				CombatSystem cs = engine.getSystem(CombatSystem.class);
@@ -128,8 +176,15 @@ public class GladiatorBrawler extends ApplicationAdapter {
 
 	@Override
 	public void render() {
-		engine.update(Gdx.graphics.getDeltaTime());
-		currentState.update(Gdx.graphics.getDeltaTime());
+		if (simulationThread != null) {
+			synchronized (AppUtil.engineLock) {
+				currentState.update(Gdx.graphics.getDeltaTime());
+			}
+			engine.getSystem(RenderingSystem.class).render(Gdx.graphics.getDeltaTime());
+		} else {
+			engine.update(Gdx.graphics.getDeltaTime());
+			currentState.update(Gdx.graphics.getDeltaTime());
+		}
 	}
 
 	public void setState(BaseState newState) {
@@ -158,6 +213,9 @@ public class GladiatorBrawler extends ApplicationAdapter {
 
 	@Override
 	public void dispose() {
+		if (simulationThread != null) {
+			simulationThread.shutdown();
+		}
 		if (currentState != null) {
 			currentState.destroy();
 		}
@@ -20,24 +20,39 @@ package com.saltosion.gladiator.components;
 import com.badlogic.ashley.core.Component;
 import com.badlogic.gdx.math.Vector2;
 import com.saltosion.gladiator.listeners.CollisionListener;
+import com.saltosion.gladiator.physics.PhysicsWorld;
 import com.saltosion.gladiator.util.Direction;
+import com.saltosion.gladiator.util.Global;
 
+/**
+ * A handle to a body in a PhysicsWorld. Until the body is added to a world,
+ * and after it's removed from one, its state is kept in the fields of the
+ * component. The vectors returned by the getters are owned by the component
+ * and overwritten on the next call, use the setters to change the state.
+ */
 public class CPhysics extends Component {
 
+	// The world the state of the body is in, null when it's in the fields below
+	private PhysicsWorld world = null;
+	private int slot = 0;
+
+	private float positionX, positionY, previousX, previousY;
+	private float velocityX, velocityY, simVelocityX, simVelocityY;
+	private float sizeX, sizeY;
+	private float movespeed = 15f, jumpForce = 35f, gravity = 100f, drag = 30f;
+	private int flags = PhysicsWorld.MOVABLE | PhysicsWorld.GRAVITY_APPLIED | PhysicsWorld.PROCESS_COLLISIONS
+			| PhysicsWorld.GROUNDED;
+	private int collisionLayer = Global.LAYER_DEFAULT, collisionMask = Global.LAYER_ALL;
+	private int restSteps = 0;
+
 	private final Vector2 position = new Vector2();
+	private final Vector2 previousPosition = new Vector2();
 	private final Vector2 velocity = new Vector2();
 	private final Vector2 simVelocity = new Vector2();
 	private final Vector2 size = new Vector2();
-	private float movespeed = 15f, jumpForce = 35f, gravity = 100f, drag = 30f;
 	private CollisionListener collisionListener = null;
 	private float zParallax = 1;
 
-	private boolean movable = true;
-	private boolean gravityApplied = true;
-	private boolean processCollisions = true;
-	private boolean ghost = false;
-	private boolean grounded = true;
-
 	// Movement (/input) vars
 	public boolean movingLeft = false;
 	public boolean movingRight = false;
@@ -49,13 +64,110 @@ public class CPhysics extends Component {
 	// Stores a float that tells how long the physics object must wait until it can play sounds with it's walking again.
 	public float stepCD = 0;
 
+	/**
+	 * Moves the state of the body into a slot of a world, out of the world it
+	 * was in before. Used by PhysicsWorld when it adds the body.
+	 *
+	 * @param world The world to move the state into
+	 * @param slot The slot of the body in the world
+	 */
+	public void attach(PhysicsWorld world, int slot) {
+		detach();
+		world.positionX[slot] = positionX;
+		world.positionY[slot] = positionY;
+		world.previousX[slot] = previousX;
+		world.previousY[slot] = previousY;
+		world.velocityX[slot] = velocityX;
+		world.velocityY[slot] = velocityY;
+		world.simVelocityX[slot] = simVelocityX;
+		world.simVelocityY[slot] = simVelocityY;
+		world.sizeX[slot] = sizeX;
+		world.sizeY[slot] = sizeY;
+		world.movespeed[slot] = movespeed;
+		world.jumpForce[slot] = jumpForce;
+		world.gravity[slot] = gravity;
+		world.drag[slot] = drag;
+		world.flags[slot] = flags;
+		world.collisionLayers[slot] = collisionLayer;
+		world.collisionMasks[slot] = collisionMask;
+		world.restSteps[slot] = restSteps;
+		setWorld(world, slot);
+	}
+
+	/**
+	 * Points this handle to another slot of the world it's in. Used by
+	 * PhysicsWorld when it moves the body.
+	 *
+	 * @param world The world the state of the body is in
+	 * @param slot The slot of the body in the world
+	 */
+	public void setWorld(PhysicsWorld world, int slot) {
+		this.world = world;
+		this.slot = slot;
+	}
+
+	/**
+	 * Copies the state of the body out of the world it's in, so that the body
+	 * stays usable after it has been removed from the world.
+	 */
+	public void detach() {
+		if (world == null) {
+			return;
+		}
+		positionX = world.positionX[slot];
+		positionY = world.positionY[slot];
+		previousX = world.previousX[slot];
+		previousY = world.previousY[slot];
+		velocityX = world.velocityX[slot];
+		velocityY = world.velocityY[slot];
+		simVelocityX = world.simVelocityX[slot];
+		simVelocityY = world.simVelocityY[slot];
+		sizeX = world.sizeX[slot];
+		sizeY = world.sizeY[slot];
+		movespeed = world.movespeed[slot];
+		jumpForce = world.jumpForce[slot];
+		gravity = world.gravity[slot];
+		drag = world.drag[slot];
+		flags = world.flags[slot];
+		collisionLayer = world.collisionLayers[slot];
+		collisionMask = world.collisionMasks[slot];
+		restSteps = world.restSteps[slot];
+		world = null;
+		slot = 0;
+	}
+
+	/**
+	 * @return The world the body is in, null if it isn't in one
+	 */
+	public PhysicsWorld getWorld() {
+		return this.world;
+	}
+
+	public int getSlot() {
+		return this.slot;
+	}
+
+	private CPhysics setFlag(int flag, boolean value) {
+		int current = world != null ? world.flags[slot] : flags;
+		int changed = value ? current | flag : current & ~flag;
+		if (world != null) {
+			world.flags[slot] = changed;
+		} else {
+			flags = changed;
+		}
+		return this;
+	}
+
+	private boolean getFlag(int flag) {
+		return ((world != null ? world.flags[slot] : flags) & flag) != 0;
+	}
+
 	/**
 	 * @param movable Toggles if the entity can move by itself
 	 * @return Returns the instance this methdod was called from
 	 */
 	public CPhysics setMovable(boolean movable) {
-		this.movable = movable;
-		return this;
+		return setFlag(PhysicsWorld.MOVABLE, movable);
 	}
 
 	/**
@@ -63,8 +175,7 @@ public class CPhysics extends Component {
 	 * @return Returns the instance this methdod was called from
 	 */
 	public CPhysics setGravityApplied(boolean gravityApplied) {
-		this.gravityApplied = gravityApplied;
-		return this;
+		return setFlag(PhysicsWorld.GRAVITY_APPLIED, gravityApplied);
 	}
 
 	/**
@@ -72,8 +183,7 @@ public class CPhysics extends Component {
 	 * @return Returns the instance this methdod was called from
 	 */
 	public CPhysics setProcessCollisions(boolean processCollisions) {
-		this.processCollisions = processCollisions;
-		return this;
+		return setFlag(PhysicsWorld.PROCESS_COLLISIONS, processCollisions);
 	}
 
 	/**
@@ -82,50 +192,107 @@ public class CPhysics extends Component {
 	 * @return Returns the instance this methdod was called from
 	 */
 	public CPhysics setGhost(boolean ghost) {
-		this.ghost = ghost;
+		return setFlag(PhysicsWorld.GHOST, ghost);
+	}
+
+	/**
+	 * Wakes the entity up if the physics system has put it to sleep.
+	 *
+	 * @return Returns the instance this methdod was called from
+	 */
+	public CPhysics wakeUp() {
+		if (world != null) {
+			world.wake(slot);
+		} else {
+			flags &= ~PhysicsWorld.SLEEPING;
+			restSteps = 0;
+		}
 		return this;
 	}
 
 	public CPhysics setSize(float w, float h) {
-		this.size.set(w, h);
+		if (world != null) {
+			world.sizeX[slot] = w;
+			world.sizeY[slot] = h;
+		} else {
+			sizeX = w;
+			sizeY = h;
+		}
 		return this;
 	}
 
 	public CPhysics setSize(Vector2 size) {
-		this.size.set(size);
-		return this;
+		return setSize(size.x, size.y);
 	}
 
+	/**
+	 * Moves the entity without interpolating from the old position. Wakes the
+	 * entity up.
+	 *
+	 * @param x
+	 * @param y
+	 * @return Returns the instance this methdod was called from
+	 */
 	public CPhysics setPosition(float x, float y) {
-		this.position.set(x, y);
+		wakeUp();
+		if (world != null) {
+			world.positionX[slot] = x;
+			world.positionY[slot] = y;
+			world.previousX[slot] = x;
+			world.previousY[slot] = y;
+		} else {
+			positionX = x;
+			positionY = y;
+			previousX = x;
+			previousY = y;
+		}
 		return this;
 	}
 
+	/**
+	 * Moves the entity without interpolating from the old position.
+	 *
+	 * @param pos
+	 * @return Returns the instance this methdod was called from
+	 */
 	public CPhysics setPosition(Vector2 pos) {
-		this.position.set(pos);
-		return this;
+		return setPosition(pos.x, pos.y);
 	}
 
 	public CPhysics setVelocity(float x, float y) {
-		this.velocity.set(x, y);
+		wakeUp();
+		if (world != null) {
+			world.velocityX[slot] = x;
+			world.velocityY[slot] = y;
+		} else {
+			velocityX = x;
+			velocityY = y;
+		}
 		return this;
 	}
 
 	public CPhysics setVelocity(Vector2 vel) {
-		this.velocity.set(vel);
-		return this;
+		return setVelocity(vel.x, vel.y);
 	}
 
 	/**
 	 * This velocity can be set externally and will always end up being 0 after
-	 * some time that depends on the value of the drag variable
+	 * some time that depends on the value of the drag variable. Wakes the
+	 * entity up.
 	 *
 	 * @param x The x part of the new sim velocity
 	 * @param y The y part of the new sim velocity
 	 * @return The host component
 	 */
 	public CPhysics setSimVelocity(float x, float y) {
-		this.simVelocity.set(x, y);
+		wakeUp();
+		if (world != null) {
+			world.simVelocityX[slot] = x;
+			world.simVelocityY[slot] = y;
+		} else {
+			simVelocityX = x;
+			simVelocityY = y;
+		}
 		return this;
 	}
 
@@ -137,27 +304,69 @@ public class CPhysics extends Component {
 	 * @return The host component
 	 */
 	public CPhysics setSimVelocity(Vector2 simVel) {
-		this.simVelocity.set(simVel);
-		return this;
+		return setSimVelocity(simVel.x, simVel.y);
 	}
 
 	public CPhysics setMoveSpeed(float movespeed) {
-		this.movespeed = movespeed;
+		if (world != null) {
+			world.movespeed[slot] = movespeed;
+		} else {
+			this.movespeed = movespeed;
+		}
 		return this;
 	}
 
 	public CPhysics setJumpForce(float jumpForce) {
-		this.jumpForce = jumpForce;
+		if (world != null) {
+			world.jumpForce[slot] = jumpForce;
+		} else {
+			this.jumpForce = jumpForce;
+		}
 		return this;
 	}
 
 	public CPhysics setGravity(float gravity) {
-		this.gravity = gravity;
+		if (world != null) {
+			world.gravity[slot] = gravity;
+		} else {
+			this.gravity = gravity;
+		}
 		return this;
 	}
 
 	public CPhysics setDrag(float drag) {
-		this.drag = drag;
+		if (world != null) {
+			world.drag[slot] = drag;
+		} else {
+			this.drag = drag;
+		}
+		return this;
+	}
+
+	/**
+	 * @param collisionLayer The layer(s) this entity is in, see Global.LAYER_*
+	 * @return Returns the instance this methdod was called from
+	 */
+	public CPhysics setCollisionLayer(int collisionLayer) {
+		if (world != null) {
+			world.collisionLayers[slot] = collisionLayer;
+		} else {
+			this.collisionLayer = collisionLayer;
+		}
+		return this;
+	}
+
+	/**
+	 * @param collisionMask The layers of the entities this entity processes
+	 * collisions with
+	 * @return Returns the instance this methdod was called from
+	 */
+	public CPhysics setCollisionMask(int collisionMask) {
+		if (world != null) {
+			world.collisionMasks[slot] = collisionMask;
+		} else {
+			this.collisionMask = collisionMask;
+		}
 		return this;
 	}
 
@@ -167,8 +376,7 @@ public class CPhysics extends Component {
 	}
 
 	public CPhysics setGrounded(boolean grounded) {
-		this.grounded = grounded;
-		return this;
+		return setFlag(PhysicsWorld.GROUNDED, grounded);
 	}
 
 	public CPhysics setDirection(Direction dir) {
@@ -181,36 +389,85 @@ public class CPhysics extends Component {
 		return this;
 	}
 
+	/**
+	 * @return The position of the body. The same vector is returned by every
+	 * call, copy it to keep the value.
+	 */
 	public Vector2 getPosition() {
-		return this.position;
+		return world != null ? position.set(world.positionX[slot], world.positionY[slot])
+				: position.set(positionX, positionY);
+	}
+
+	/**
+	 * @return The position at the start of the latest physics step. The same
+	 * vector is returned by every call, copy it to keep the value.
+	 */
+	public Vector2 getPreviousPosition() {
+		return world != null ? previousPosition.set(world.previousX[slot], world.previousY[slot])
+				: previousPosition.set(previousX, previousY);
 	}
 
+	/**
+	 * Interpolates between the previous and the current position, used to
+	 * render the entity smoothly between physics steps.
+	 *
+	 * @param alpha 0 returns the previous position, 1 the current one
+	 * @param result The vector the position is stored in
+	 * @return result
+	 */
+	public Vector2 getInterpolatedPosition(float alpha, Vector2 result) {
+		Vector2 previous = getPreviousPosition(), current = getPosition();
+		return result.set(previous.x + (current.x - previous.x) * alpha, previous.y + (current.y - previous.y) * alpha);
+	}
+
+	/**
+	 * @return The velocity of the body. The same vector is returned by every
+	 * call, copy it to keep the value.
+	 */
 	public Vector2 getVelocity() {
-		return this.velocity;
+		return world != null ? velocity.set(world.velocityX[slot], world.velocityY[slot])
+				: velocity.set(velocityX, velocityY);
 	}
 
+	/**
+	 * @return The sim velocity of the body. The same vector is returned by
+	 * every call, copy it to keep the value.
+	 */
 	public Vector2 getSimVelocity() {
-		return this.simVelocity;
+		return world != null ? simVelocity.set(world.simVelocityX[slot], world.simVelocityY[slot])
+				: simVelocity.set(simVelocityX, simVelocityY);
 	}
 
+	/**
+	 * @return The size of the body. The same vector is returned by every call,
+	 * copy it to keep the value.
+	 */
 	public Vector2 getSize() {
-		return this.size;
+		return world != null ? size.set(world.sizeX[slot], world.sizeY[slot]) : size.set(sizeX, sizeY);
 	}
 
 	public float getMovespeed() {
-		return this.movespeed;
+		return world != null ? world.movespeed[slot] : movespeed;
 	}
 
 	public float getJumpForce() {
-		return this.jumpForce;
+		return world != null ? world.jumpForce[slot] : jumpForce;
 	}
 
 	public float getGravity() {
-		return this.gravity;
+		return world != null ? world.gravity[slot] : gravity;
 	}
 
 	public float getDrag() {
-		return this.drag;
+		return world != null ? world.drag[slot] : drag;
+	}
+
+	public int getCollisionLayer() {
+		return world != null ? world.collisionLayers[slot] : collisionLayer;
+	}
+
+	public int getCollisionMask() {
+		return world != null ? world.collisionMasks[slot] : collisionMask;
 	}
 
 	public CollisionListener getCollisionListener() {
@@ -218,23 +475,31 @@ public class CPhysics extends Component {
 	}
 
 	public boolean isMovable() {
-		return this.movable;
+		return getFlag(PhysicsWorld.MOVABLE);
 	}
 
 	public boolean isGravityApplied() {
-		return this.gravityApplied;
+		return getFlag(PhysicsWorld.GRAVITY_APPLIED);
 	}
 
 	public boolean isProcessCollisions() {
-		return this.processCollisions;
+		return getFlag(PhysicsWorld.PROCESS_COLLISIONS);
 	}
 
 	public boolean isGhost() {
-		return this.ghost;
+		return getFlag(PhysicsWorld.GHOST);
 	}
 
 	public boolean isGrounded() {
-		return this.grounded;
+		return getFlag(PhysicsWorld.GROUNDED);
+	}
+
+	/**
+	 * @return True if the entity has been at rest long enough that the physics
+	 * system has stopped simulating it
+	 */
+	public boolean isSleeping() {
+		return getFlag(PhysicsWorld.SLEEPING);
 	}
 
 	public CPhysics setZParallax(float zParallax) {
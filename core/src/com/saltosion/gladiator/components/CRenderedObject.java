@@ -18,22 +18,36 @@
 package com.saltosion.gladiator.components;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Set;
 
 import com.badlogic.ashley.core.Component;
 import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.saltosion.gladiator.util.AnimationSet;
 import com.saltosion.gladiator.util.Log;
 import com.saltosion.gladiator.util.SpriteSequence;
 
+/**
+ * Draws an entity with the sequences of an AnimationSet. The set is shared,
+ * this component only stores which sequence each channel is playing and how
+ * far it is.
+ *
+ * Channels have ids as well as names: the id of a channel is the order it was
+ * added in. The methods that take ids don't do any lookups or allocations, so
+ * they are the ones to use every frame. The methods that take names are kept
+ * for convenience.
+ */
 public class CRenderedObject extends Component {
 
-	private final HashMap<String, SpriteSequence> spritesequences = new HashMap<String, SpriteSequence>();
-	private final ArrayList<String> channels = new ArrayList<String>();
-	private final HashMap<String, String> currentSequences = new HashMap<String, String>();
-	private final HashMap<String, Float> currentFrames = new HashMap<String, Float>();
+	public static final int MAX_CHANNELS = 4;
+
+	private final AnimationSet animations;
+	private final ArrayList<String> channels = new ArrayList<String>(MAX_CHANNELS);
+	// The sequence ids and frames of the channels, indexed by channel id
+	private final int[] currentSequences = new int[MAX_CHANNELS];
+	private final float[] currentFrames = new float[MAX_CHANNELS];
+	private boolean opaque = false;
 
-	public CRenderedObject() {
+	public CRenderedObject(AnimationSet animations) {
+		this.animations = animations;
 		addChannel("default");
 	}
 
@@ -43,12 +57,7 @@ public class CRenderedObject extends Component {
 	 * @param sprite
 	 */
 	public CRenderedObject(Sprite sprite) {
-		spritesequences.put("Idle", new SpriteSequence(sprite));
-		addChannel("default");
-	}
-
-	public void addSequence(String key, SpriteSequence sequence) {
-		spritesequences.put(key, sequence);
+		this(new AnimationSet(sprite));
 	}
 
 	/**
@@ -58,7 +67,10 @@ public class CRenderedObject extends Component {
 	 * @param sequence
 	 */
 	public void setCurrentSequence(String channelName, String sequence) {
-		this.currentSequences.put(channelName, sequence);
+		int channel = channels.indexOf(channelName);
+		if (channel >= 0) {
+			this.currentSequences[channel] = animations.getId(sequence);
+		}
 	}
 
 	/**
@@ -77,7 +89,10 @@ public class CRenderedObject extends Component {
 	 * @param frame
 	 */
 	public void setCurrentFrame(String channelName, float frame) {
-		this.currentFrames.put(channelName, frame);
+		int channel = channels.indexOf(channelName);
+		if (channel >= 0) {
+			this.currentFrames[channel] = frame;
+		}
 	}
 
 	/**
@@ -89,8 +104,44 @@ public class CRenderedObject extends Component {
 		setCurrentFrame("default", frame);
 	}
 
+	/**
+	 * Sets frame for a channel.
+	 *
+	 * @param channel The id of the channel
+	 * @param frame
+	 */
+	public void setCurrentFrame(int channel, float frame) {
+		this.currentFrames[channel] = frame;
+	}
+
 	public SpriteSequence getSequence(String key) {
-		return spritesequences.get(key);
+		return animations.getSequence(key);
+	}
+
+	/**
+	 * @param channel The id of the channel
+	 * @return The sequence playing on the channel
+	 */
+	public SpriteSequence getChannelSequence(int channel) {
+		return animations.getSequence(currentSequences[channel]);
+	}
+
+	public AnimationSet getAnimations() {
+		return animations;
+	}
+
+	/**
+	 * @param opaque True if every pixel of every sprite of this object is
+	 * fully opaque, so it can be drawn without blending
+	 * @return Returns the instance this methdod was called from
+	 */
+	public CRenderedObject setOpaque(boolean opaque) {
+		this.opaque = opaque;
+		return this;
+	}
+
+	public boolean isOpaque() {
+		return this.opaque;
 	}
 
 	/**
@@ -130,33 +181,54 @@ public class CRenderedObject extends Component {
 	 * @param startingframe
 	 */
 	public void playAnimation(String channelName, String key, int startingframe) {
-		if (getCurrentSequence(channelName).equals(key)) {
-			return;
-		}
-
-		if (spritesequences.containsKey(key) && channels.contains(channelName)) {
-			setCurrentSequence(channelName, key);
-			setCurrentFrame(channelName, startingframe);
+		int channel = channels.indexOf(channelName);
+		int sequence = animations.getId(key);
+		if (channel >= 0 && sequence != AnimationSet.NO_SEQUENCE) {
+			playAnimation(channel, sequence, startingframe);
 			return;
 		}
 
 		Log.info("Channel: " + channelName);
 		Log.info("Key: " + key);
 
-		String[] s = (String[]) spritesequences.keySet().toArray();
-		setCurrentSequence(channels.get(0), s[0]);
-		setCurrentFrame(channels.get(0), 0f);
+		this.currentSequences[0] = 0;
+		this.currentFrames[0] = 0;
+	}
+
+	/**
+	 * Plays animation on a channel starting on frame 0, unless the channel is
+	 * already playing it.
+	 *
+	 * @param channel The id of the channel
+	 * @param sequence The id of the sequence in the animation set
+	 */
+	public void playAnimation(int channel, int sequence) {
+		playAnimation(channel, sequence, 0);
+	}
+
+	/**
+	 * Plays animation on a channel, unless the channel is already playing it.
+	 *
+	 * @param channel The id of the channel
+	 * @param sequence The id of the sequence in the animation set
+	 * @param startingframe
+	 */
+	public void playAnimation(int channel, int sequence, int startingframe) {
+		if (this.currentSequences[channel] == sequence) {
+			return;
+		}
+		this.currentSequences[channel] = sequence;
+		this.currentFrames[channel] = startingframe;
 	}
 
 	public final void addChannel(String channelName) {
-		Set<String> sequences = spritesequences.keySet();
-		String sequence = "";
-		if (sequences.size() > 0) {
-			sequence = (String) sequences.toArray()[0];
+		int channel = this.channels.size();
+		if (channel == MAX_CHANNELS) {
+			throw new IllegalStateException("A rendered object can't have more than " + MAX_CHANNELS + " channels");
 		}
 		this.channels.add(channelName);
-		this.currentSequences.put(channelName, sequence);
-		this.currentFrames.put(channelName, 0f);
+		this.currentSequences[channel] = 0;
+		this.currentFrames[channel] = 0;
 	}
 
 	/**
@@ -171,10 +243,7 @@ public class CRenderedObject extends Component {
 		if (!this.channels.contains(oldName) || this.channels.contains(newName)) {
 			return false;
 		}
-		this.channels.remove(oldName);
-		this.channels.add(newName);
-		this.currentFrames.put(newName, this.currentFrames.remove(oldName));
-		this.currentSequences.put(newName, this.currentSequences.remove(oldName));
+		this.channels.set(this.channels.indexOf(oldName), newName);
 		return true;
 	}
 
@@ -182,13 +251,25 @@ public class CRenderedObject extends Component {
 		return channels;
 	}
 
+	public int getChannelCount() {
+		return channels.size();
+	}
+
+	/**
+	 * @param channelName
+	 * @return The id of the channel, or -1 if there is no such channel
+	 */
+	public int getChannelId(String channelName) {
+		return channels.indexOf(channelName);
+	}
+
 	/**
 	 * Returns the current frame on "default" channel.
 	 *
 	 * @return
 	 */
 	public float getCurrentFrame() {
-		return currentFrames.get("default");
+		return getCurrentFrame("default");
 	}
 
 	/**
@@ -198,11 +279,21 @@ public class CRenderedObject extends Component {
 	 * @return
 	 */
 	public float getCurrentFrame(String channel) {
-		return currentFrames.get(channel);
+		return currentFrames[channels.indexOf(channel)];
+	}
+
+	/**
+	 * Returns the frame on a channel.
+	 *
+	 * @param channel The id of the channel
+	 * @return
+	 */
+	public float getCurrentFrame(int channel) {
+		return currentFrames[channel];
 	}
 
 	public String getCurrentSequence() {
-		return currentSequences.get("default");
+		return getCurrentSequence("default");
 	}
 
 	/**
@@ -212,7 +303,15 @@ public class CRenderedObject extends Component {
 	 * @return
 	 */
 	public String getCurrentSequence(String channel) {
-		return currentSequences.get(channel);
+		return animations.getName(currentSequences[channels.indexOf(channel)]);
+	}
+
+	/**
+	 * @param channel The id of the channel
+	 * @return The id of the sequence playing on the channel
+	 */
+	public int getCurrentSequenceId(int channel) {
+		return currentSequences[channel];
 	}
 
 }
@@ -70,7 +70,9 @@ public class InputHandler implements InputProcessor {
 			return false;
 		}
 		String actionName = keys.get(keycode);
-		return InputReceivers.getReceiver(actionName).pressed();
+		synchronized (AppUtil.engineLock) {
+			return InputReceivers.getReceiver(actionName).pressed();
+		}
 	}
 
 	@Override
@@ -82,7 +84,9 @@ public class InputHandler implements InputProcessor {
 			return false;
 		}
 		String actionName = keys.get(keycode);
-		return InputReceivers.getReceiver(actionName).released();
+		synchronized (AppUtil.engineLock) {
+			return InputReceivers.getReceiver(actionName).released();
+		}
 	}
 
 	@Override
@@ -92,13 +96,15 @@ public class InputHandler implements InputProcessor {
 
 	@Override
 	public boolean touchDown(int screenX, int screenY, int pointer, int button) {
-		for (String id : hoveredUIElements) {
-			GUINode node = AppUtil.guiManager.getNode(id);
+		synchronized (AppUtil.engineLock) {
+			for (String id : hoveredUIElements) {
+				GUINode node = AppUtil.guiManager.getNode(id);
 
-			if (node instanceof InteractiveProperty) {
-				((InteractiveProperty) node).pressed(screenX, screenY, button);
-			} else {
-				Log.error("Attempted to call 'pressed' on a non-interactive node!");
+				if (node instanceof InteractiveProperty) {
+					((InteractiveProperty) node).pressed(screenX, screenY, button);
+				} else {
+					Log.error("Attempted to call 'pressed' on a non-interactive node!");
+				}
 			}
 		}
 		return true;
@@ -106,13 +112,15 @@ public class InputHandler implements InputProcessor {
 
 	@Override
 	public boolean touchUp(int screenX, int screenY, int pointer, int button) {
-		for (String id : hoveredUIElements) {
-			GUINode node = AppUtil.guiManager.getNode(id);
+		synchronized (AppUtil.engineLock) {
+			for (String id : hoveredUIElements) {
+				GUINode node = AppUtil.guiManager.getNode(id);
 
-			if (node instanceof InteractiveProperty) {
-				((InteractiveProperty) node).released(screenX, screenY, button);
-			} else {
-				Log.error("Attempted to call 'released' on a non-interactive node!");
+				if (node instanceof InteractiveProperty) {
+					((InteractiveProperty) node).released(screenX, screenY, button);
+				} else {
+					Log.error("Attempted to call 'released' on a non-interactive node!");
+				}
 			}
 		}
 		return true;
@@ -26,16 +26,24 @@ import com.saltosion.gladiator.components.CPhysics;
 import com.saltosion.gladiator.components.CRenderedObject;
 import com.saltosion.gladiator.listeners.BasicDeathListener;
 import com.saltosion.gladiator.listeners.ai.DummyAI;
+import com.saltosion.gladiator.util.AnimationSet;
 import com.saltosion.gladiator.util.AppUtil;
 import com.saltosion.gladiator.util.Direction;
 import com.saltosion.gladiator.util.Global;
 import com.saltosion.gladiator.util.Name;
 import com.saltosion.gladiator.util.SpriteLoader;
 import com.saltosion.gladiator.util.SpriteSequence;
+import java.util.LinkedHashMap;
 
 public class EntityFactory {
 
 	private final static int IDLE_ANIMATION_SPEED = 1, RUN_ANIMATION_SPEED = 15, SWING_ANIMATION_SPEED = 10;
+	// Fighters are only stopped by solid things, hitboxes find the fighters themselves
+	private final static int FIGHTER_COLLISION_MASK = Global.LAYER_DEFAULT | Global.LAYER_FIGHTER
+			| Global.LAYER_GROUND | Global.LAYER_BORDER;
+
+	// Every fighter is drawn with the same sprites, so they share the animations
+	private AnimationSet playerAnimations = null;
 
 	public Entity createPlayer(Vector2 pos) {
 		return createPlayer(pos, Direction.RIGHT);
@@ -50,7 +58,8 @@ public class EntityFactory {
 
 		// Physics
 		player.add(new CPhysics().setSize(1.5f, 3.299f).setPosition(pos.x, pos.y)
-				.setDirection(initialDirection).setMoveSpeed(15f));
+				.setDirection(initialDirection).setMoveSpeed(15f)
+				.setCollisionLayer(Global.LAYER_FIGHTER).setCollisionMask(FIGHTER_COLLISION_MASK));
 
 		// Combat
 		player.add(new CCombat().setBaseDamage(100).setHealth(1000)
@@ -79,7 +88,8 @@ public class EntityFactory {
 
 		// Physics
 		enemy.add(new CPhysics().setSize(1.5f, 3.299f).setPosition(pos.x, pos.y)
-				.setDirection(initialDirection).setMoveSpeed(14f));
+				.setDirection(initialDirection).setMoveSpeed(14f)
+				.setCollisionLayer(Global.LAYER_FIGHTER).setCollisionMask(FIGHTER_COLLISION_MASK));
 
 		// Combat
 		enemy.add(new CCombat().setBaseDamage(100).setHealth(1000)
@@ -92,7 +102,20 @@ public class EntityFactory {
 	}
 
 	private CRenderedObject createPlayerRenderedObject() {
-		CRenderedObject renderedObject = new CRenderedObject();
+		if (playerAnimations == null) {
+			playerAnimations = createPlayerAnimations();
+		}
+		CRenderedObject renderedObject = new CRenderedObject(playerAnimations);
+		renderedObject.setChannelName("default", "legs");
+		renderedObject.addChannel("torso");
+		renderedObject.playAnimation("torso", "Torso-Idle-Right");
+		renderedObject.playAnimation("legs", "Legs-Idle-Right");
+
+		return renderedObject;
+	}
+
+	private AnimationSet createPlayerAnimations() {
+		LinkedHashMap<String, SpriteSequence> sequences = new LinkedHashMap<String, SpriteSequence>();
 
 		// Sprite[x][y][flip]
 		Sprite[][][] playerSprites = new Sprite[2][19][2];
@@ -106,71 +129,65 @@ public class EntityFactory {
 			}
 		}
 
-		renderedObject.setChannelName("default", "legs");
-		renderedObject.addChannel("torso");
-
 		// Idle animations
 		SpriteSequence torsoIdleRightSequence = new SpriteSequence(IDLE_ANIMATION_SPEED).addSprite(playerSprites[0][0][0]).addSprite(playerSprites[0][1][0]);
-		renderedObject.addSequence("Torso-Idle-Right", torsoIdleRightSequence);
+		sequences.put("Torso-Idle-Right", torsoIdleRightSequence);
 		SpriteSequence legsIdleRightSquence = new SpriteSequence(IDLE_ANIMATION_SPEED).addSprite(playerSprites[1][0][0]).addSprite(playerSprites[1][1][0]);
-		renderedObject.addSequence("Legs-Idle-Right", legsIdleRightSquence);
+		sequences.put("Legs-Idle-Right", legsIdleRightSquence);
 		SpriteSequence torsoIdleLeftSequence = new SpriteSequence(IDLE_ANIMATION_SPEED).addSprite(playerSprites[0][0][1]).addSprite(playerSprites[0][1][1]);
-		renderedObject.addSequence("Torso-Idle-Left", torsoIdleLeftSequence);
+		sequences.put("Torso-Idle-Left", torsoIdleLeftSequence);
 		SpriteSequence legsIdleLeftSquence = new SpriteSequence(IDLE_ANIMATION_SPEED).addSprite(playerSprites[1][0][1]).addSprite(playerSprites[1][1][1]);
-		renderedObject.addSequence("Legs-Idle-Left", legsIdleLeftSquence);
+		sequences.put("Legs-Idle-Left", legsIdleLeftSquence);
 
 		// Running animations
 		SpriteSequence torsoRunRightSequence = new SpriteSequence(RUN_ANIMATION_SPEED).addSprite(playerSprites[0][2][0])
 				.addSprite(playerSprites[0][3][0]).addSprite(playerSprites[0][4][0]).addSprite(playerSprites[0][5][0])
 				.addSprite(playerSprites[0][6][0]).addSprite(playerSprites[0][5][0]).addSprite(playerSprites[0][4][0])
 				.addSprite(playerSprites[0][3][0]);
-		renderedObject.addSequence("Torso-Run-Right", torsoRunRightSequence);
+		sequences.put("Torso-Run-Right", torsoRunRightSequence);
 		SpriteSequence legsRunRightSequence = new SpriteSequence(RUN_ANIMATION_SPEED).addSprite(playerSprites[1][2][0])
 				.addSprite(playerSprites[1][3][0]).addSprite(playerSprites[1][4][0]).addSprite(playerSprites[1][5][0])
 				.addSprite(playerSprites[1][6][0]).addSprite(playerSprites[1][7][0]).addSprite(playerSprites[1][8][0])
 				.addSprite(playerSprites[1][9][0]);
-		renderedObject.addSequence("Legs-Run-Right", legsRunRightSequence);
+		sequences.put("Legs-Run-Right", legsRunRightSequence);
 		SpriteSequence torsoRunLeftSequence = new SpriteSequence(RUN_ANIMATION_SPEED).addSprite(playerSprites[0][2][1])
 				.addSprite(playerSprites[0][3][1]).addSprite(playerSprites[0][4][1]).addSprite(playerSprites[0][5][1])
 				.addSprite(playerSprites[0][6][1]).addSprite(playerSprites[0][5][1]).addSprite(playerSprites[0][4][1])
 				.addSprite(playerSprites[0][3][1]);
-		renderedObject.addSequence("Torso-Run-Left", torsoRunLeftSequence);
+		sequences.put("Torso-Run-Left", torsoRunLeftSequence);
 		SpriteSequence legsRunLeftSequence = new SpriteSequence(RUN_ANIMATION_SPEED).addSprite(playerSprites[1][2][1])
 				.addSprite(playerSprites[1][3][1]).addSprite(playerSprites[1][4][1]).addSprite(playerSprites[1][5][1])
 				.addSprite(playerSprites[1][6][1]).addSprite(playerSprites[1][7][1]).addSprite(playerSprites[1][8][1])
 				.addSprite(playerSprites[1][9][1]);
-		renderedObject.addSequence("Legs-Run-Left", legsRunLeftSequence);
+		sequences.put("Legs-Run-Left", legsRunLeftSequence);
 
 		// Jumping animation
 		SpriteSequence legsJumpRightSequence = new SpriteSequence(SWING_ANIMATION_SPEED).addSprite(playerSprites[1][8][0]);
-		renderedObject.addSequence("Legs-Jump-Right", legsJumpRightSequence);
+		sequences.put("Legs-Jump-Right", legsJumpRightSequence);
 		SpriteSequence legsJumpLeftSequence = new SpriteSequence(SWING_ANIMATION_SPEED).addSprite(playerSprites[1][8][1]);
-		renderedObject.addSequence("Legs-Jump-Left", legsJumpLeftSequence);
+		sequences.put("Legs-Jump-Left", legsJumpLeftSequence);
 
 		// Combat animations
 		SpriteSequence torsoCombatRightSequence = new SpriteSequence(SWING_ANIMATION_SPEED).addSprite(playerSprites[0][7][0])
 				.addSprite(playerSprites[0][8][0]).addSprite(playerSprites[0][9][0]).addSprite(playerSprites[0][10][0]);
-		renderedObject.addSequence("Torso-Combat-Right", torsoCombatRightSequence);
+		sequences.put("Torso-Combat-Right", torsoCombatRightSequence);
 		SpriteSequence torsoCombatLeftSequence = new SpriteSequence(SWING_ANIMATION_SPEED).addSprite(playerSprites[0][7][1])
 				.addSprite(playerSprites[0][8][1]).addSprite(playerSprites[0][9][1]).addSprite(playerSprites[0][10][1]);
-		renderedObject.addSequence("Torso-Combat-Left", torsoCombatLeftSequence);
+		sequences.put("Torso-Combat-Left", torsoCombatLeftSequence);
 		SpriteSequence torsoCombatRightDownSequence = new SpriteSequence(SWING_ANIMATION_SPEED).addSprite(playerSprites[0][11][0])
 				.addSprite(playerSprites[0][12][0]).addSprite(playerSprites[0][13][0]).addSprite(playerSprites[0][14][0]);
-		renderedObject.addSequence("Torso-Combat-Right-Down", torsoCombatRightDownSequence);
+		sequences.put("Torso-Combat-Right-Down", torsoCombatRightDownSequence);
 		SpriteSequence torsoCombatRightUpSequence = new SpriteSequence(SWING_ANIMATION_SPEED).addSprite(playerSprites[0][15][0])
 				.addSprite(playerSprites[0][16][0]).addSprite(playerSprites[0][17][0]).addSprite(playerSprites[0][18][0]);
-		renderedObject.addSequence("Torso-Combat-Right-Up", torsoCombatRightUpSequence);
+		sequences.put("Torso-Combat-Right-Up", torsoCombatRightUpSequence);
 		SpriteSequence torsoCombatLeftDownSequence = new SpriteSequence(SWING_ANIMATION_SPEED).addSprite(playerSprites[0][11][1])
 				.addSprite(playerSprites[0][12][1]).addSprite(playerSprites[0][13][1]).addSprite(playerSprites[0][14][1]);
-		renderedObject.addSequence("Torso-Combat-Left-Down", torsoCombatLeftDownSequence);
+		sequences.put("Torso-Combat-Left-Down", torsoCombatLeftDownSequence);
 		SpriteSequence torsoCombatLeftUpSequence = new SpriteSequence(SWING_ANIMATION_SPEED).addSprite(playerSprites[0][15][1])
 				.addSprite(playerSprites[0][16][1]).addSprite(playerSprites[0][17][1]).addSprite(playerSprites[0][18][1]);
-		renderedObject.addSequence("Torso-Combat-Left-Up", torsoCombatLeftUpSequence);
+		sequences.put("Torso-Combat-Left-Up", torsoCombatLeftUpSequence);
 
-		renderedObject.playAnimation("torso", "Torso-Idle-Right");
-		renderedObject.playAnimation("legs", "Legs-Idle-Right");
-
-		return renderedObject;
+		return new AnimationSet(sequences);
 	}
 
 }
@@ -20,19 +20,21 @@ package com.saltosion.gladiator.level;
 import com.badlogic.ashley.core.ComponentMapper;
 import com.badlogic.ashley.core.Entity;
 import com.badlogic.gdx.graphics.g2d.Sprite;
-import com.badlogic.gdx.math.Vector2;
 import com.saltosion.gladiator.components.CPhysics;
 import com.saltosion.gladiator.components.CRenderedObject;
 import com.saltosion.gladiator.systems.RenderingSystem;
+import com.saltosion.gladiator.util.AnimationSet;
 import com.saltosion.gladiator.util.AppUtil;
 import com.saltosion.gladiator.util.Global;
 import com.saltosion.gladiator.util.Name;
 import com.saltosion.gladiator.util.SpriteLoader;
 import com.saltosion.gladiator.util.SpriteSequence;
+import java.util.HashMap;
 
 public class LevelFactory {
 
 	private static final ComponentMapper<CPhysics> pm = ComponentMapper.getFor(CPhysics.class);
+	private AnimationSet audienceAnimations = null;
 
 	public void createLevelBase() {
 		createAudience();
@@ -43,15 +45,20 @@ public class LevelFactory {
 
 	public Entity createAudience() {
 		Entity audience = new Entity();
-		Sprite audienceSprite0 = SpriteLoader.loadSprite(Name.AUDIENCEIMG, 0, 0, 768, 576);
-		Sprite audienceSprite1 = SpriteLoader.loadSprite(Name.AUDIENCEIMG, 1, 0, 768, 576);
-		CRenderedObject audienceRO = new CRenderedObject();
-		SpriteSequence audienceAnim = new SpriteSequence(1).addSprite(audienceSprite0).addSprite(audienceSprite1);
-		audienceRO.addSequence("Default-Animation", audienceAnim);
+		if (audienceAnimations == null) {
+			HashMap<String, SpriteSequence> sequences = new HashMap<String, SpriteSequence>();
+			sequences.put("Default-Animation", new SpriteSequence(1)
+					.addSprite(SpriteLoader.loadSprite(Name.AUDIENCEIMG, 0, 0, 768, 576))
+					.addSprite(SpriteLoader.loadSprite(Name.AUDIENCEIMG, 1, 0, 768, 576)));
+			audienceAnimations = new AnimationSet(sequences);
+		}
+		Sprite audienceSprite0 = audienceAnimations.getSequence("Default-Animation").getSprite(0);
+		CRenderedObject audienceRO = new CRenderedObject(audienceAnimations).setOpaque(true);
 		audienceRO.playAnimation("Default-Animation");
 		audience.add(audienceRO);
 		CPhysics audiencePO = new CPhysics().setMovable(false).setGravityApplied(false)
 				.setProcessCollisions(false).setGhost(true).setPosition(0, 10).setZParallax(10)
+				.setCollisionLayer(Global.LAYER_SCENERY).setCollisionMask(0)
 				.setSize(audienceSprite0.getRegionWidth() * Global.SPRITE_SCALE,
 						audienceSprite0.getRegionHeight() * Global.SPRITE_SCALE);
 		audience.add(audiencePO);
@@ -63,10 +70,11 @@ public class LevelFactory {
 	public Entity createWall() {
 		Entity wall = new Entity();
 		Sprite wallSprite = SpriteLoader.loadSprite(Name.WALLIMG);
-		CRenderedObject wallRO = new CRenderedObject(wallSprite);
+		CRenderedObject wallRO = new CRenderedObject(wallSprite).setOpaque(true);
 		wall.add(wallRO);
 		CPhysics wallPO = new CPhysics().setMovable(false).setGravityApplied(false)
 				.setProcessCollisions(false).setGhost(true).setPosition(0, 2).setZParallax(2)
+				.setCollisionLayer(Global.LAYER_SCENERY).setCollisionMask(0)
 				.setSize(wallSprite.getRegionWidth() * Global.SPRITE_SCALE,
 						wallSprite.getRegionHeight() * Global.SPRITE_SCALE);
 		wall.add(wallPO);
@@ -78,12 +86,13 @@ public class LevelFactory {
 	public Entity createGround() {
 		Entity ground = new Entity();
 		Sprite groundSprite = SpriteLoader.loadSprite(Name.GROUNDIMG);
-		CRenderedObject groundRO = new CRenderedObject(groundSprite);
+		CRenderedObject groundRO = new CRenderedObject(groundSprite).setOpaque(true);
 		ground.add(groundRO);
 		CPhysics groundPO = new CPhysics().setMovable(false).setGravityApplied(false).setProcessCollisions(false)
+				.setCollisionLayer(Global.LAYER_GROUND).setCollisionMask(0)
 				.setSize(groundSprite.getRegionWidth() * Global.SPRITE_SCALE,
 						groundSprite.getRegionHeight() * Global.SPRITE_SCALE);
-		groundPO.getPosition().set(new Vector2(0, -4));
+		groundPO.setPosition(0, -4);
 		ground.add(groundPO);
 		AppUtil.engine.addEntity(ground);
 
@@ -96,13 +105,15 @@ public class LevelFactory {
 
 		Entity borderLeft = new Entity();
 		CPhysics borderLeftPhysics = new CPhysics().setMovable(false).setGravityApplied(false)
-				.setProcessCollisions(false).setSize(1f, 20);
+				.setProcessCollisions(false).setSize(1f, 20)
+				.setCollisionLayer(Global.LAYER_BORDER).setCollisionMask(0);
 		borderLeftPhysics.setPosition(-xClamp - borderLeftPhysics.getSize().x / 2, 0);
 		borderLeft.add(borderLeftPhysics);
 		AppUtil.engine.addEntity(borderLeft);
 		Entity borderRight = new Entity();
 		CPhysics borderRightPhysics = new CPhysics().setMovable(false).setGravityApplied(false)
-				.setProcessCollisions(false).setSize(1f, 20);
+				.setProcessCollisions(false).setSize(1f, 20)
+				.setCollisionLayer(Global.LAYER_BORDER).setCollisionMask(0);
 		borderRightPhysics.setPosition(xClamp + borderRightPhysics.getSize().x / 2, 0);
 		borderRight.add(borderRightPhysics);
 		AppUtil.engine.addEntity(borderRight);
@@ -26,7 +26,8 @@ public interface AIListener {
 	 * @param closeEntities A list of entities that are close to the host entity
 	 * than the host entity's reactDistance.
 	 * @param host The host entity of this listener
+	 * @param deltaTime Time since the previous reaction, in seconds
 	 */
-	public void react(ArrayList<Entity> closeEntities, Entity host);
+	public void react(ArrayList<Entity> closeEntities, Entity host, float deltaTime);
 
 }
@@ -39,7 +39,7 @@ public class BasicDeathListener implements CombatListener {
 				AudioLoader.getSound(Name.SOUND_HIT03),
 				AudioLoader.getSound(Name.SOUND_HIT04),
 				AudioLoader.getSound(Name.SOUND_HIT05));
-		s.play(AppUtil.sfxVolume);
+		AppUtil.jukebox.playSound(s, AppUtil.sfxVolume);
 
 		for (int i = 0; i < getGoreAmount(damageTaken) * 2; i++) {
 			Entity fx = new Entity();
@@ -62,7 +62,7 @@ public class BasicDeathListener implements CombatListener {
 				AudioLoader.getSound(Name.SOUND_HIT03),
 				AudioLoader.getSound(Name.SOUND_HIT04),
 				AudioLoader.getSound(Name.SOUND_HIT05));
-		s.play(AppUtil.sfxVolume);
+		AppUtil.jukebox.playSound(s, AppUtil.sfxVolume);
 
 		for (int i = 0; i < getGoreAmount(damageTaken); i++) {
 			Entity fx = new Entity();
@@ -30,22 +30,98 @@ import com.saltosion.gladiator.util.AudioLoader;
 import com.saltosion.gladiator.util.Direction;
 import com.saltosion.gladiator.util.Name;
 
-public class SwingHitboxListener implements CollisionListener {
+/**
+ * The hitbox of a swing. It isn't a physics body: CombatSystem queries the
+ * physics system for the fighters inside it, and deals the damage through
+ * this listener. The hitboxes are reused by CombatSystem, so the listener can
+ * be activated for a new swing after the previous one is over.
+ */
+public class SwingHitboxListener implements OverlapListener {
 
 	private final ArrayList<Entity> hitEntities = new ArrayList<Entity>();
+	private final ArrayList<SwingHitboxListener> clashedSwings = new ArrayList<SwingHitboxListener>();
 	private final ComponentMapper<CCombat> cm = ComponentMapper.getFor(CCombat.class);
 	private final ComponentMapper<CPhysics> pm = ComponentMapper.getFor(CPhysics.class);
-	private final Entity source;
-	private final Direction direction;
+	private final CombatSystem combatSystem;
+	private Entity source = null;
+	private Direction direction;
+	private float x, y, width, height;
+
+	/**
+	 * @param combatSystem The system the damage of the swings is dealt
+	 * through
+	 */
+	public SwingHitboxListener(CombatSystem combatSystem) {
+		this.combatSystem = combatSystem;
+	}
 
-	public SwingHitboxListener(Entity source, Direction direction) {
+	/**
+	 * Starts a new swing, the entities hit by the previous one can be hit
+	 * again.
+	 *
+	 * @param source The entity that swings
+	 * @param direction The direction of the swing
+	 * @param x The x coordinate of the centre of the hitbox
+	 * @param y The y coordinate of the centre of the hitbox
+	 * @param width The width of the hitbox
+	 * @param height The height of the hitbox
+	 */
+	public void activate(Entity source, Direction direction, float x, float y, float width, float height) {
 		this.source = source;
 		this.direction = direction;
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+		this.hitEntities.clear();
+		this.clashedSwings.clear();
+	}
+
+	/**
+	 * Ends the swing, the listener ignores overlaps until it's activated
+	 * again.
+	 */
+	public void deactivate() {
+		this.source = null;
+		this.hitEntities.clear();
+		this.clashedSwings.clear();
+	}
+
+	public boolean isActive() {
+		return this.source != null;
+	}
+
+	public Entity getSource() {
+		return this.source;
+	}
+
+	public float getX() {
+		return this.x;
+	}
+
+	public float getY() {
+		return this.y;
+	}
+
+	public float getWidth() {
+		return this.width;
+	}
+
+	public float getHeight() {
+		return this.height;
+	}
+
+	/**
+	 * @param other Another swing
+	 * @return True if the hitboxes of the swings overlap
+	 */
+	public boolean overlaps(SwingHitboxListener other) {
+		return Math.abs(x - other.x) * 2 < width + other.width && Math.abs(y - other.y) * 2 < height + other.height;
 	}
 
 	@Override
-	public void collision(Direction side, Entity host, Entity other) {
-		if (other.equals(source) || hitEntities.contains(other)) {
+	public void overlap(Entity other) {
+		if (source == null || other.equals(source) || hitEntities.contains(other)) {
 			return; // These entities don't need to take damage
 		}
 		hitEntities.add(other);
@@ -53,27 +129,36 @@ public class SwingHitboxListener implements CollisionListener {
 		CCombat otherCombat = cm.get(other);
 		if (otherCombat != null) {
 			int damage = cm.get(source).getDamage();
-			CombatSystem.dealDamage(source, other, damage);
+			combatSystem.dealDamage(source, other, damage);
+		}
+	}
+
+	/**
+	 * Called when the hitbox of this swing meets the one of another swing.
+	 * Knocks the swinger back, once per pair of swings.
+	 *
+	 * @param other The other swing
+	 */
+	public void clash(SwingHitboxListener other) {
+		if (source == null || !other.isActive() || other.source == source || clashedSwings.contains(other)) {
+			return;
 		}
+		clashedSwings.add(other);
 
-		CPhysics otherPhysics = pm.get(other);
-		if (otherPhysics != null && otherPhysics.getCollisionListener() != null
-				&& otherPhysics.getCollisionListener() instanceof SwingHitboxListener) {
-			float x = 0;
-			if (direction == Direction.LEFT) {
-				x = 1;
-			} else if (direction == Direction.RIGHT) {
-				x = -1;
-			}
-			float force = cm.get(source).getSwingForce();
-			pm.get(source).setSimVelocity(x * force, 0);
-
-			Sound s = AppUtil.jukebox.returnRandomSound(AudioLoader.getSound(Name.SOUND_CLANG01),
-					AudioLoader.getSound(Name.SOUND_CLANG02),
-					AudioLoader.getSound(Name.SOUND_CLANG03),
-					AudioLoader.getSound(Name.SOUND_CLANG04));
-			s.play(AppUtil.sfxVolume);
+		float knockback = 0;
+		if (direction == Direction.LEFT) {
+			knockback = 1;
+		} else if (direction == Direction.RIGHT) {
+			knockback = -1;
 		}
+		float force = cm.get(source).getSwingForce();
+		pm.get(source).setSimVelocity(knockback * force, 0);
+
+		Sound s = AppUtil.jukebox.returnRandomSound(AudioLoader.getSound(Name.SOUND_CLANG01),
+				AudioLoader.getSound(Name.SOUND_CLANG02),
+				AudioLoader.getSound(Name.SOUND_CLANG03),
+				AudioLoader.getSound(Name.SOUND_CLANG04));
+		AppUtil.jukebox.playSound(s, AppUtil.sfxVolume);
 	}
 
 }
@@ -31,7 +31,7 @@ public class DummyAI implements AIListener {
 	private static final ComponentMapper<CCombat> cm = ComponentMapper.getFor(CCombat.class);
 
 	@Override
-	public void react(ArrayList<Entity> closeEntities, Entity host) {
+	public void react(ArrayList<Entity> closeEntities, Entity host, float deltaTime) {
 		CPhysics p0 = pm.get(host);
 		CCombat c0 = cm.get(host);
 		c0.inputs.put(Direction.UP, false);
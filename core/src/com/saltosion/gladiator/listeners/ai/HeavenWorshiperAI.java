@@ -26,7 +26,7 @@ import java.util.ArrayList;
 public class HeavenWorshiperAI implements AIListener {
 
 	@Override
-	public void react(ArrayList<Entity> closeEntities, Entity host) {
+	public void react(ArrayList<Entity> closeEntities, Entity host, float deltaTime) {
 		CCombat co = host.getComponent(CCombat.class);
 		co.inputs.put(Direction.UP, true);
 	}
@@ -19,7 +19,6 @@ package com.saltosion.gladiator.listeners.ai;
 
 import com.badlogic.ashley.core.ComponentMapper;
 import com.badlogic.ashley.core.Entity;
-import com.badlogic.gdx.Gdx;
 import com.saltosion.gladiator.components.CCombat;
 import com.saltosion.gladiator.components.CPhysics;
 import com.saltosion.gladiator.listeners.AIListener;
@@ -43,8 +42,8 @@ public class HunterAI implements AIListener {
 	}
 
 	@Override
-	public void react(ArrayList<Entity> closeEntities, Entity host) {
-		lastRush += Gdx.graphics.getDeltaTime();
+	public void react(ArrayList<Entity> closeEntities, Entity host, float deltaTime) {
+		lastRush += deltaTime;
 		if (lastRush > rushInterval) {
 			lastRush = 0;
 		} else {
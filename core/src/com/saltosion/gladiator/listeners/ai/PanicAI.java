@@ -18,7 +18,6 @@
 package com.saltosion.gladiator.listeners.ai;
 
 import com.badlogic.ashley.core.Entity;
-import com.badlogic.gdx.Gdx;
 import com.saltosion.gladiator.components.CCombat;
 import com.saltosion.gladiator.components.CPhysics;
 import com.saltosion.gladiator.listeners.AIListener;
@@ -39,8 +38,8 @@ public class PanicAI implements AIListener {
 	}
 
 	@Override
-	public void react(ArrayList<Entity> closeEntities, Entity host) {
-		stateChange += Gdx.graphics.getDeltaTime();
+	public void react(ArrayList<Entity> closeEntities, Entity host, float deltaTime) {
+		stateChange += deltaTime;
 		if (stateChange > stateChangeInterval) {
 			stateChange = 0;
 		} else {
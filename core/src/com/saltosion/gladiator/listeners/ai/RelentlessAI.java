@@ -28,7 +28,7 @@ import java.util.ArrayList;
 public class RelentlessAI implements AIListener {
 
 	@Override
-	public void react(ArrayList<Entity> closeEntities, Entity host) {
+	public void react(ArrayList<Entity> closeEntities, Entity host, float deltaTime) {
 		float dist = -1;
 		Entity closestEntity = null;
 		CPhysics p0 = host.getComponent(CPhysics.class);
@@ -19,7 +19,6 @@ package com.saltosion.gladiator.listeners.ai;
 
 import com.badlogic.ashley.core.ComponentMapper;
 import com.badlogic.ashley.core.Entity;
-import com.badlogic.gdx.Gdx;
 import com.saltosion.gladiator.components.CCombat;
 import com.saltosion.gladiator.components.CPhysics;
 import com.saltosion.gladiator.listeners.AIListener;
@@ -32,7 +31,7 @@ public class ScaredAI implements AIListener {
 	private static final ComponentMapper<CCombat> cm = ComponentMapper.getFor(CCombat.class);
 
 	@Override
-	public void react(ArrayList<Entity> closeEntities, Entity host) {
+	public void react(ArrayList<Entity> closeEntities, Entity host, float deltaTime) {
 		CCombat c0 = cm.get(host);
 		CPhysics p0 = pm.get(host);
 
@@ -47,7 +46,7 @@ public class ScaredAI implements AIListener {
 		if (Math.random() < 0.5) {
 			dir = Direction.UP;
 		}
-		if (Math.random() < 2 * Gdx.graphics.getDeltaTime()) {
+		if (Math.random() < 2 * deltaTime) {
 			c0.inputs.put(dir, true);
 		}
 		for (Entity other : closeEntities) {
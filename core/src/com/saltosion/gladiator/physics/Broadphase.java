@@ -0,0 +1,66 @@
+/**
+ * GladiatorBrawler is a 2D swordfighting game.
+ * Copyright (C) 2015 Jeasonfire/Allexit
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.saltosion.gladiator.physics;
+
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Finds the bodies that might be colliding with a given area, so that the
+ * physics system doesn't have to test every pair of bodies. Bodies are
+ * identified by integer ids chosen by the user of the broadphase.
+ */
+public interface Broadphase {
+
+	/**
+	 * Removes all the bodies from the broadphase.
+	 */
+	public void clear();
+
+	/**
+	 * Inserts the body, or moves it if it has been inserted already.
+	 *
+	 * @param id The id of the body
+	 * @param x0 Left side of the body
+	 * @param y0 Bottom side of the body
+	 * @param x1 Right side of the body
+	 * @param y1 Top side of the body
+	 */
+	public void update(int id, float x0, float y0, float x1, float y1);
+
+	/**
+	 * Removes the body. Does nothing if the body isn't in the broadphase.
+	 *
+	 * @param id The id of the body
+	 */
+	public void remove(int id);
+
+	/**
+	 * Finds the bodies that might overlap the given area. The result can
+	 * contain bodies that don't actually overlap it, but never misses one that
+	 * does.
+	 *
+	 * @param x0 Left side of the area
+	 * @param y0 Bottom side of the area
+	 * @param x1 Right side of the area
+	 * @param y1 Top side of the area
+	 * @param result Cleared and filled with the ids of the bodies, in ascending
+	 * order and without duplicates
+	 */
+	public void query(float x0, float y0, float x1, float y1, IntArray result);
+
+}
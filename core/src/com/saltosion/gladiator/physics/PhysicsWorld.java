@@ -0,0 +1,202 @@
+/**
+ * GladiatorBrawler is a 2D swordfighting game.
+ * Copyright (C) 2015 Jeasonfire/Allexit
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.saltosion.gladiator.physics;
+
+import com.badlogic.ashley.core.Entity;
+import com.saltosion.gladiator.components.CPhysics;
+import java.util.Arrays;
+
+/**
+ * Stores the physics state of many bodies in primitive arrays, indexed by the
+ * slot of the body. The slots are kept packed: when a body is removed, the
+ * last body is moved into its slot.
+ *
+ * A CPhysics is a handle to a slot in a world. A CPhysics that isn't in a
+ * world keeps its state in its own fields.
+ */
+public class PhysicsWorld {
+
+	public static final int MOVABLE = 1;
+	public static final int GRAVITY_APPLIED = 1 << 1;
+	public static final int PROCESS_COLLISIONS = 1 << 2;
+	public static final int GHOST = 1 << 3;
+	public static final int GROUNDED = 1 << 4;
+	public static final int SLEEPING = 1 << 5;
+
+	public float[] positionX, positionY, previousX, previousY;
+	public float[] velocityX, velocityY, simVelocityX, simVelocityY;
+	public float[] sizeX, sizeY;
+	public float[] movespeed, jumpForce, gravity, drag;
+	public int[] flags;
+	public int[] collisionLayers, collisionMasks;
+	// How many steps in a row the body has been at rest
+	public int[] restSteps;
+
+	private CPhysics[] bodies;
+	private Entity[] entities;
+	private int size = 0;
+
+	public PhysicsWorld(int capacity) {
+		positionX = new float[capacity];
+		positionY = new float[capacity];
+		previousX = new float[capacity];
+		previousY = new float[capacity];
+		velocityX = new float[capacity];
+		velocityY = new float[capacity];
+		simVelocityX = new float[capacity];
+		simVelocityY = new float[capacity];
+		sizeX = new float[capacity];
+		sizeY = new float[capacity];
+		movespeed = new float[capacity];
+		jumpForce = new float[capacity];
+		gravity = new float[capacity];
+		drag = new float[capacity];
+		flags = new int[capacity];
+		collisionLayers = new int[capacity];
+		collisionMasks = new int[capacity];
+		restSteps = new int[capacity];
+		bodies = new CPhysics[capacity];
+		entities = new Entity[capacity];
+	}
+
+	/**
+	 * Moves the state of the body into this world. The body must not be in
+	 * another world.
+	 *
+	 * @param body The body to add
+	 * @param entity The entity the body belongs to
+	 * @return The slot of the body
+	 */
+	public int add(CPhysics body, Entity entity) {
+		ensureCapacity(size + 1);
+		int slot = size++;
+		bodies[slot] = body;
+		entities[slot] = entity;
+		body.attach(this, slot);
+		return slot;
+	}
+
+	/**
+	 * Moves the state of the body in the slot back into the body itself, and
+	 * moves the last body of the world into the freed slot.
+	 *
+	 * @param slot The slot of the body to remove
+	 */
+	public void remove(int slot) {
+		bodies[slot].detach();
+		int last = --size;
+		if (slot != last) {
+			copy(this, last, slot);
+			bodies[slot] = bodies[last];
+			entities[slot] = entities[last];
+			bodies[slot].setWorld(this, slot);
+		}
+		bodies[last] = null;
+		entities[last] = null;
+	}
+
+	/**
+	 * Removes all the bodies from the world.
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			bodies[i].detach();
+			bodies[i] = null;
+			entities[i] = null;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Copies the whole state of a body from another world (or this one).
+	 *
+	 * @param from The world to copy from
+	 * @param fromSlot The slot to copy from
+	 * @param toSlot The slot in this world to copy to
+	 */
+	public void copy(PhysicsWorld from, int fromSlot, int toSlot) {
+		positionX[toSlot] = from.positionX[fromSlot];
+		positionY[toSlot] = from.positionY[fromSlot];
+		previousX[toSlot] = from.previousX[fromSlot];
+		previousY[toSlot] = from.previousY[fromSlot];
+		velocityX[toSlot] = from.velocityX[fromSlot];
+		velocityY[toSlot] = from.velocityY[fromSlot];
+		simVelocityX[toSlot] = from.simVelocityX[fromSlot];
+		simVelocityY[toSlot] = from.simVelocityY[fromSlot];
+		sizeX[toSlot] = from.sizeX[fromSlot];
+		sizeY[toSlot] = from.sizeY[fromSlot];
+		movespeed[toSlot] = from.movespeed[fromSlot];
+		jumpForce[toSlot] = from.jumpForce[fromSlot];
+		gravity[toSlot] = from.gravity[fromSlot];
+		drag[toSlot] = from.drag[fromSlot];
+		flags[toSlot] = from.flags[fromSlot];
+		collisionLayers[toSlot] = from.collisionLayers[fromSlot];
+		collisionMasks[toSlot] = from.collisionMasks[fromSlot];
+		restSteps[toSlot] = from.restSteps[fromSlot];
+	}
+
+	/**
+	 * Wakes the body up, if it's sleeping, and resets its rest counter.
+	 *
+	 * @param slot The slot of the body
+	 */
+	public void wake(int slot) {
+		flags[slot] &= ~SLEEPING;
+		restSteps[slot] = 0;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public CPhysics getBody(int slot) {
+		return this.bodies[slot];
+	}
+
+	public Entity getEntity(int slot) {
+		return this.entities[slot];
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= flags.length) {
+			return;
+		}
+		int newCapacity = Math.max(capacity, flags.length * 2);
+		positionX = Arrays.copyOf(positionX, newCapacity);
+		positionY = Arrays.copyOf(positionY, newCapacity);
+		previousX = Arrays.copyOf(previousX, newCapacity);
+		previousY = Arrays.copyOf(previousY, newCapacity);
+		velocityX = Arrays.copyOf(velocityX, newCapacity);
+		velocityY = Arrays.copyOf(velocityY, newCapacity);
+		simVelocityX = Arrays.copyOf(simVelocityX, newCapacity);
+		simVelocityY = Arrays.copyOf(simVelocityY, newCapacity);
+		sizeX = Arrays.copyOf(sizeX, newCapacity);
+		sizeY = Arrays.copyOf(sizeY, newCapacity);
+		movespeed = Arrays.copyOf(movespeed, newCapacity);
+		jumpForce = Arrays.copyOf(jumpForce, newCapacity);
+		gravity = Arrays.copyOf(gravity, newCapacity);
+		drag = Arrays.copyOf(drag, newCapacity);
+		flags = Arrays.copyOf(flags, newCapacity);
+		collisionLayers = Arrays.copyOf(collisionLayers, newCapacity);
+		collisionMasks = Arrays.copyOf(collisionMasks, newCapacity);
+		restSteps = Arrays.copyOf(restSteps, newCapacity);
+		bodies = Arrays.copyOf(bodies, newCapacity);
+		entities = Arrays.copyOf(entities, newCapacity);
+	}
+
+}
@@ -0,0 +1,147 @@
+/**
+ * GladiatorBrawler is a 2D swordfighting game.
+ * Copyright (C) 2015 Jeasonfire/Allexit
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.saltosion.gladiator.physics;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
+import java.util.Arrays;
+
+/**
+ * A broadphase that divides the world into a uniform grid of square cells.
+ * Every body is stored in each cell it touches, and a body is only moved
+ * between cells when the cells it touches change.
+ */
+public class SpatialHashBroadphase implements Broadphase {
+
+	private static final int CELL_LIMIT = Short.MAX_VALUE;
+
+	private final float cellSize;
+	private final IntMap<IntArray> cells = new IntMap<IntArray>();
+
+	// The cells each body is currently stored in, indexed by body id
+	private int[] minCellX = new int[16], minCellY = new int[16];
+	private int[] maxCellX = new int[16], maxCellY = new int[16];
+	private boolean[] inserted = new boolean[16];
+
+	/**
+	 * @param cellSize The width and height of a single cell. Should be a bit
+	 * larger than the common moving bodies.
+	 */
+	public SpatialHashBroadphase(float cellSize) {
+		this.cellSize = cellSize;
+	}
+
+	@Override
+	public void clear() {
+		for (IntArray cell : cells.values()) {
+			cell.clear();
+		}
+		for (int i = 0; i < inserted.length; i++) {
+			inserted[i] = false;
+		}
+	}
+
+	@Override
+	public void update(int id, float x0, float y0, float x1, float y1) {
+		ensureCapacity(id + 1);
+		int cx0 = getCell(x0), cy0 = getCell(y0), cx1 = getCell(x1), cy1 = getCell(y1);
+		if (inserted[id]) {
+			if (cx0 == minCellX[id] && cy0 == minCellY[id] && cx1 == maxCellX[id] && cy1 == maxCellY[id]) {
+				return; // Still in the same cells
+			}
+			remove(id);
+		}
+
+		for (int x = cx0; x <= cx1; x++) {
+			for (int y = cy0; y <= cy1; y++) {
+				int key = getKey(x, y);
+				IntArray cell = cells.get(key);
+				if (cell == null) {
+					cell = new IntArray(false, 8);
+					cells.put(key, cell);
+				}
+				cell.add(id);
+			}
+		}
+		minCellX[id] = cx0;
+		minCellY[id] = cy0;
+		maxCellX[id] = cx1;
+		maxCellY[id] = cy1;
+		inserted[id] = true;
+	}
+
+	@Override
+	public void remove(int id) {
+		if (id >= inserted.length || !inserted[id]) {
+			return;
+		}
+		for (int x = minCellX[id]; x <= maxCellX[id]; x++) {
+			for (int y = minCellY[id]; y <= maxCellY[id]; y++) {
+				cells.get(getKey(x, y)).removeValue(id);
+			}
+		}
+		inserted[id] = false;
+	}
+
+	@Override
+	public void query(float x0, float y0, float x1, float y1, IntArray result) {
+		result.clear();
+		int cx0 = getCell(x0), cy0 = getCell(y0), cx1 = getCell(x1), cy1 = getCell(y1);
+		for (int x = cx0; x <= cx1; x++) {
+			for (int y = cy0; y <= cy1; y++) {
+				IntArray cell = cells.get(getKey(x, y));
+				if (cell != null) {
+					result.addAll(cell);
+				}
+			}
+		}
+
+		// Bodies that span multiple cells were added once per cell
+		result.sort();
+		int unique = 0;
+		for (int i = 0; i < result.size; i++) {
+			int id = result.items[i];
+			if (unique == 0 || result.items[unique - 1] != id) {
+				result.items[unique++] = id;
+			}
+		}
+		result.size = unique;
+	}
+
+	private int getCell(float position) {
+		int cell = (int) Math.floor(position / cellSize);
+		return Math.max(-CELL_LIMIT, Math.min(CELL_LIMIT, cell));
+	}
+
+	private int getKey(int cellX, int cellY) {
+		return (cellX << 16) | (cellY & 0xFFFF);
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= inserted.length) {
+			return;
+		}
+		int newCapacity = Math.max(capacity, inserted.length * 2);
+		minCellX = Arrays.copyOf(minCellX, newCapacity);
+		minCellY = Arrays.copyOf(minCellY, newCapacity);
+		maxCellX = Arrays.copyOf(maxCellX, newCapacity);
+		maxCellY = Arrays.copyOf(maxCellY, newCapacity);
+		inserted = Arrays.copyOf(inserted, newCapacity);
+	}
+
+}
@@ -0,0 +1,136 @@
+/**
+ * GladiatorBrawler is a 2D swordfighting game.
+ * Copyright (C) 2015 Jeasonfire/Allexit
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.saltosion.gladiator.render;
+
+import com.saltosion.gladiator.components.CRenderedObject;
+import com.saltosion.gladiator.util.AnimationSet;
+import java.util.Arrays;
+
+/**
+ * Everything the rendering system needs to draw one simulation step, copied
+ * out of the components so that it can be drawn while the engine is already
+ * simulating the next step. The state is stored in primitive arrays indexed by
+ * body, like in PhysicsWorld.
+ *
+ * A snapshot is filled by the simulation and isn't changed after it has been
+ * published, until the SnapshotBuffer gives it back to the simulation.
+ */
+public class RenderSnapshot {
+
+	// Bodies are the entities that have a CPhysics
+	public int bodyCount = 0;
+	public float[] previousX, previousY, positionX, positionY;
+	public float[] sizeX, sizeY, zParallax;
+	// Negative when the body doesn't have a CAI
+	public float[] reactDistance;
+	// Health divided by max health, negative when the body doesn't have a CCombat
+	public float[] health;
+	public boolean[] opaque;
+	// 0 when the body doesn't have a CRenderedObject
+	public int[] channelCount;
+	public AnimationSet[] animations;
+	// The sequence and frame of each channel, indexed by
+	// body * CRenderedObject.MAX_CHANNELS + channel
+	public int[] sequences;
+	public float[] frames;
+
+	public int particleCount = 0;
+	public float[] particleX, particleY, particleWidth, particleHeight;
+	// Packed with Color.toFloatBits()
+	public float[] particleColor;
+
+	// The active swing hitboxes, drawn in the debug mode
+	public int hitboxCount = 0;
+	public float[] hitboxX, hitboxY, hitboxWidth, hitboxHeight;
+
+	// The player's positions, if there's a player
+	public boolean hasCameraTarget = false;
+	public float cameraPreviousX, cameraPreviousY, cameraX, cameraY;
+
+	// How far the physics was between its previous and current step
+	public float interpolationAlpha = 1;
+	// Length of a physics step in seconds
+	public float stepTime = 0;
+	// System.nanoTime() when the snapshot was filled
+	public long time = 0;
+
+	public RenderSnapshot() {
+		setBodyCapacity(64);
+		setParticleCapacity(256);
+		setHitboxCapacity(16);
+	}
+
+	/**
+	 * Forgets the previous contents, and makes room for the given amount of
+	 * bodies, particles and hitboxes.
+	 *
+	 * @param bodies
+	 * @param particles
+	 * @param hitboxes
+	 */
+	public void clear(int bodies, int particles, int hitboxes) {
+		if (bodies > positionX.length) {
+			setBodyCapacity(Math.max(bodies, positionX.length * 2));
+		}
+		if (particles > particleX.length) {
+			setParticleCapacity(Math.max(particles, particleX.length * 2));
+		}
+		if (hitboxes > hitboxX.length) {
+			setHitboxCapacity(Math.max(hitboxes, hitboxX.length * 2));
+		}
+		// Don't keep the animations of removed entities alive
+		Arrays.fill(animations, 0, bodyCount, null);
+		bodyCount = 0;
+		particleCount = 0;
+		hitboxCount = 0;
+		hasCameraTarget = false;
+	}
+
+	private void setBodyCapacity(int capacity) {
+		previousX = new float[capacity];
+		previousY = new float[capacity];
+		positionX = new float[capacity];
+		positionY = new float[capacity];
+		sizeX = new float[capacity];
+		sizeY = new float[capacity];
+		zParallax = new float[capacity];
+		reactDistance = new float[capacity];
+		health = new float[capacity];
+		opaque = new boolean[capacity];
+		channelCount = new int[capacity];
+		animations = new AnimationSet[capacity];
+		sequences = new int[capacity * CRenderedObject.MAX_CHANNELS];
+		frames = new float[capacity * CRenderedObject.MAX_CHANNELS];
+	}
+
+	private void setParticleCapacity(int capacity) {
+		particleX = new float[capacity];
+		particleY = new float[capacity];
+		particleWidth = new float[capacity];
+		particleHeight = new float[capacity];
+		particleColor = new float[capacity];
+	}
+
+	private void setHitboxCapacity(int capacity) {
+		hitboxX = new float[capacity];
+		hitboxY = new float[capacity];
+		hitboxWidth = new float[capacity];
+		hitboxHeight = new float[capacity];
+	}
+
+}
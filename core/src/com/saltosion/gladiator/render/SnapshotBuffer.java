@@ -0,0 +1,63 @@
+/**
+ * GladiatorBrawler is a 2D swordfighting game.
+ * Copyright (C) 2015 Jeasonfire/Allexit
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.saltosion.gladiator.render;
+
+/**
+ * A triple buffer of snapshots: the simulation fills one while the renderer
+ * draws another, and the third holds the latest complete snapshot. Neither
+ * side ever waits for the other, the renderer just draws the latest snapshot
+ * again if a new one hasn't been published.
+ */
+public class SnapshotBuffer {
+
+	private final RenderSnapshot[] snapshots = {new RenderSnapshot(), new RenderSnapshot(), new RenderSnapshot()};
+	private int writing = 0, latest = 1, reading = 2;
+	private boolean published = false;
+
+	/**
+	 * @return The snapshot the simulation should fill next. Only valid until
+	 * publish() is called.
+	 */
+	public RenderSnapshot getWriteSnapshot() {
+		return snapshots[writing];
+	}
+
+	/**
+	 * Makes the filled write snapshot the latest one.
+	 */
+	public synchronized void publish() {
+		int filled = writing;
+		writing = latest;
+		latest = filled;
+		published = true;
+	}
+
+	/**
+	 * @return The latest published snapshot. Only valid until the next call.
+	 */
+	public synchronized RenderSnapshot getReadSnapshot() {
+		if (published) {
+			int previous = reading;
+			reading = latest;
+			latest = previous;
+			published = false;
+		}
+		return snapshots[reading];
+	}
+
+}
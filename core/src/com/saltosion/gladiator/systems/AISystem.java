@@ -69,7 +69,7 @@ public class AISystem extends EntitySystem {
 			}
 			AIListener listener = cai.getAIListener();
 			if (listener != null) {
-				listener.react(reactEntities, entities.get(i));
+				listener.react(reactEntities, entities.get(i), deltaTime);
 			}
 		}
 	}
@@ -0,0 +1,70 @@
+/**
+ * GladiatorBrawler is a 2D swordfighting game.
+ * Copyright (C) 2015 Jeasonfire/Allexit
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.saltosion.gladiator.systems;
+
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.EntitySystem;
+import com.saltosion.gladiator.components.CPhysics;
+import com.saltosion.gladiator.listeners.OverlapListener;
+
+/**
+ * The parts of a physics system the rest of the game uses, so that the
+ * physics engine can be chosen at startup. The running one is in
+ * AppUtil.physicsSystem.
+ */
+public abstract class BasePhysicsSystem extends EntitySystem {
+
+	public abstract void updateEntities(Engine engine);
+
+	/**
+	 * @return How far the simulation is between the previous and the current
+	 * step, from 0 to 1. Used to interpolate between the previous and the
+	 * current positions when rendering.
+	 */
+	public abstract float getInterpolationAlpha();
+
+	/**
+	 * @return How many fixed steps the simulation takes per second
+	 */
+	public abstract float getUpdatesPerSecond();
+
+	/**
+	 * Finds the entities whose bodies overlap an area right away, without
+	 * adding a body for the area to the simulation. The listener must not
+	 * start another query.
+	 *
+	 * @param x The x coordinate of the centre of the area
+	 * @param y The y coordinate of the centre of the area
+	 * @param width The width of the area
+	 * @param height The height of the area
+	 * @param mask The layers of the entities to find, see Global.LAYER_*
+	 * @param listener Called once for every entity found
+	 */
+	public abstract void queryAABB(float x, float y, float width, float height, int mask, OverlapListener listener);
+
+	/**
+	 * Static entities are level geometry: they don't move, fall or process
+	 * collisions themselves, they only act as collision partners for the
+	 * others. Their position must not be changed after they have been added to
+	 * the engine.
+	 */
+	protected static boolean isStatic(CPhysics obj) {
+		return !obj.isMovable() && !obj.isGravityApplied() && !obj.isProcessCollisions();
+	}
+
+}
@@ -0,0 +1,379 @@
+/**
+ * GladiatorBrawler is a 2D swordfighting game.
+ * Copyright (C) 2015 Jeasonfire/Allexit
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.saltosion.gladiator.systems;
+
+import com.badlogic.ashley.core.ComponentMapper;
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.Family;
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.Box2D;
+import com.badlogic.gdx.physics.box2d.Contact;
+import com.badlogic.gdx.physics.box2d.ContactFilter;
+import com.badlogic.gdx.physics.box2d.Filter;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.QueryCallback;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.saltosion.gladiator.components.CCombat;
+import com.saltosion.gladiator.components.CPhysics;
+import com.saltosion.gladiator.listeners.CollisionListener;
+import com.saltosion.gladiator.listeners.OverlapListener;
+import com.saltosion.gladiator.physics.PhysicsWorld;
+import com.saltosion.gladiator.util.AppUtil;
+import com.saltosion.gladiator.util.AudioLoader;
+import com.saltosion.gladiator.util.Direction;
+import com.saltosion.gladiator.util.Name;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Runs the CPhysics bodies in a Box2D world instead of the hand-written
+ * engine of PhysicsSystem. Static entities become static Box2D bodies,
+ * ghosts become sensors and the collision layers are checked by a contact
+ * filter. Box2D resolves the contacts of both bodies, so unlike with
+ * PhysicsSystem, a body that doesn't process collisions can still be pushed.
+ *
+ * The size and the flags of a body are read when it's created, changing them
+ * afterwards has no effect.
+ */
+public class Box2DPhysicsSystem extends BasePhysicsSystem {
+
+	private static final float UPDATES_PER_SECOND = 60f;
+	private static final int MAX_STEPS_PER_FRAME = 10;
+	private static final int VELOCITY_ITERATIONS = 8, POSITION_ITERATIONS = 3;
+	// Box2D keeps touching polygons this far apart from each other, the boxes
+	// are made smaller by it so that they rest where they would in PhysicsSystem
+	private static final float POLYGON_SKIN = 0.0075f;
+
+	private static final ComponentMapper<CPhysics> pm = ComponentMapper.getFor(CPhysics.class);
+	private static final ComponentMapper<CCombat> cm = ComponentMapper.getFor(CCombat.class);
+	private ImmutableArray<Entity> entities;
+
+	private float updatesPerSecond = UPDATES_PER_SECOND;
+	private float accumulator = 0;
+	private float interpolationAlpha = 1;
+
+	private final World box2dWorld;
+	// The state of the bodies stays in a PhysicsWorld, and is copied to and
+	// from the Box2D bodies every step
+	private final PhysicsWorld world = new PhysicsWorld(64);
+	private final HashMap<CPhysics, Body> bodies = new HashMap<CPhysics, Body>();
+	private Body[] slotBodies = new Body[64];
+	// The positions the bodies had after the latest step, to notice when
+	// they are moved from the outside
+	private float[] steppedX = new float[64], steppedY = new float[64];
+	private boolean bodiesDirty = true;
+
+	// The area and the listener of the running queryAABB() call
+	private float queryX0, queryY0, queryX1, queryY1;
+	private int queryMask;
+	private OverlapListener queryListener;
+	private final QueryCallback queryCallback = new QueryCallback() {
+		@Override
+		public boolean reportFixture(Fixture fixture) {
+			Entity entity = (Entity) fixture.getBody().getUserData();
+			CPhysics obj = pm.get(entity);
+			if ((queryMask & obj.getCollisionLayer()) == 0) {
+				return true;
+			}
+			// Box2D reports the fixtures by their enlarged bounding boxes
+			float x = obj.getPosition().x, y = obj.getPosition().y;
+			float halfWidth = obj.getSize().x / 2, halfHeight = obj.getSize().y / 2;
+			if (x - halfWidth < queryX1 && x + halfWidth > queryX0 && y - halfHeight < queryY1 && y + halfHeight > queryY0) {
+				queryListener.overlap(entity);
+			}
+			return true;
+		}
+	};
+
+	public Box2DPhysicsSystem() {
+		Box2D.init();
+		// Gravity is scaled by the gravity of each body
+		box2dWorld = new World(new Vector2(0, -1), true);
+		box2dWorld.setContactFilter(new ContactFilter() {
+			@Override
+			public boolean shouldCollide(Fixture fixtureA, Fixture fixtureB) {
+				// Like PhysicsSystem, a pair is handled if either one is interested
+				Filter a = fixtureA.getFilterData(), b = fixtureB.getFilterData();
+				return (a.maskBits & b.categoryBits) != 0 || (b.maskBits & a.categoryBits) != 0;
+			}
+		});
+	}
+
+	@Override
+	public void addedToEngine(Engine engine) {
+		updateEntities(engine);
+	}
+
+	@Override
+	public void removedFromEngine(Engine engine) {
+		world.clear();
+		bodies.clear();
+		box2dWorld.dispose();
+	}
+
+	@Override
+	public void update(float deltaTime) {
+		if (bodiesDirty) {
+			rebuildBodies();
+		}
+
+		float stepTime = 1f / updatesPerSecond;
+		accumulator += deltaTime;
+		int steps = 0;
+		while (accumulator >= stepTime && steps < MAX_STEPS_PER_FRAME) {
+			step(stepTime);
+			accumulator -= stepTime;
+			steps++;
+		}
+		if (accumulator >= stepTime) {
+			accumulator %= stepTime;
+		}
+		interpolationAlpha = accumulator / stepTime;
+	}
+
+	private void step(float deltaTime) {
+		int n = world.size();
+		float[] px = world.positionX, py = world.positionY;
+		float[] vx = world.velocityX, vy = world.velocityY;
+		float[] svx = world.simVelocityX, svy = world.simVelocityY;
+		int[] flags = world.flags;
+
+		for (int i = 0; i < n; i++) {
+			Body body = slotBodies[i];
+			if (body.getType() == BodyDef.BodyType.StaticBody) {
+				continue;
+			}
+			if (px[i] != steppedX[i] || py[i] != steppedY[i]) {
+				body.setTransform(px[i], py[i], 0);
+			}
+			vy[i] = body.getLinearVelocity().y;
+
+			// Movement, the same way as in PhysicsSystem
+			if ((flags[i] & PhysicsWorld.MOVABLE) != 0) {
+				CPhysics obj = world.getBody(i);
+				float move = 0;
+				if (obj.movingLeft) {
+					move--;
+					obj.movedLeftLast = true;
+				}
+				if (obj.movingRight) {
+					move++;
+					obj.movedLeftLast = false;
+				}
+				vx[i] = move * world.movespeed[i];
+				CCombat combat = cm.get(world.getEntity(i));
+				if (combat != null && combat.swingCdCounter > 0) {
+					vx[i] /= 2;
+				}
+				if (obj.jumping && (flags[i] & PhysicsWorld.GROUNDED) != 0) {
+					flags[i] &= ~PhysicsWorld.GROUNDED;
+					vy[i] = world.jumpForce[i];
+
+					// Sound effect!
+					AppUtil.jukebox.playSound(AudioLoader.getSound(Name.SOUND_STEP), AppUtil.sfxVolume);
+				}
+
+				vx[i] += svx[i];
+				vy[i] += svy[i];
+
+				svx[i] -= world.drag[i] * deltaTime * Math.signum(svx[i]);
+				svy[i] -= world.drag[i] * deltaTime * Math.signum(svy[i]);
+			}
+			body.setLinearVelocity(vx[i], vy[i]);
+		}
+
+		box2dWorld.step(deltaTime, VELOCITY_ITERATIONS, POSITION_ITERATIONS);
+
+		for (int i = 0; i < n; i++) {
+			Body body = slotBodies[i];
+			world.previousX[i] = px[i];
+			world.previousY[i] = py[i];
+			if (body.getType() == BodyDef.BodyType.StaticBody) {
+				continue;
+			}
+			Vector2 position = body.getPosition();
+			px[i] = position.x;
+			py[i] = position.y;
+			steppedX[i] = px[i];
+			steppedY[i] = py[i];
+			Vector2 velocity = body.getLinearVelocity();
+			vx[i] = velocity.x;
+			vy[i] = velocity.y;
+		}
+
+		dispatchContacts();
+	}
+
+	/**
+	 * Calls the collision listeners of the touching pairs, once per step like
+	 * PhysicsSystem does, and marks the bodies that stand on something as
+	 * grounded.
+	 */
+	private void dispatchContacts() {
+		Array<Contact> contacts = box2dWorld.getContactList();
+		for (int c = 0; c < contacts.size; c++) {
+			Contact contact = contacts.get(c);
+			if (!contact.isTouching()) {
+				continue;
+			}
+			Fixture fixtureA = contact.getFixtureA(), fixtureB = contact.getFixtureB();
+			Entity entityA = (Entity) fixtureA.getBody().getUserData();
+			Entity entityB = (Entity) fixtureB.getBody().getUserData();
+			Direction sideA = Direction.CENTRE, sideB = Direction.CENTRE;
+			if (!fixtureA.isSensor() && !fixtureB.isSensor()) {
+				// The normal points from A to B
+				Vector2 normal = contact.getWorldManifold().getNormal();
+				sideA = getSide(normal.x, normal.y);
+				sideB = getSide(-normal.x, -normal.y);
+			}
+			contact(entityA, sideA, fixtureA.getFilterData().maskBits, entityB, fixtureB.getFilterData().categoryBits);
+			contact(entityB, sideB, fixtureB.getFilterData().maskBits, entityA, fixtureA.getFilterData().categoryBits);
+		}
+	}
+
+	private void contact(Entity host, Direction side, short hostMask, Entity other, short otherLayer) {
+		CPhysics obj = pm.get(host);
+		if (!obj.isProcessCollisions() || (hostMask & otherLayer) == 0) {
+			return;
+		}
+		if (side == Direction.DOWN && !obj.isGhost()) {
+			obj.setGrounded(true);
+		}
+		CollisionListener listener = obj.getCollisionListener();
+		if (listener != null) {
+			listener.collision(side, host, other);
+		}
+	}
+
+	private static Direction getSide(float normalX, float normalY) {
+		if (Math.abs(normalX) > Math.abs(normalY)) {
+			return normalX > 0 ? Direction.RIGHT : Direction.LEFT;
+		}
+		return normalY > 0 ? Direction.UP : Direction.DOWN;
+	}
+
+	/**
+	 * Creates Box2D bodies for the new entities, destroys the bodies of the
+	 * removed ones and moves the state of all of them into the world.
+	 */
+	private void rebuildBodies() {
+		world.clear();
+		HashMap<CPhysics, Body> removed = new HashMap<CPhysics, Body>(bodies);
+		for (int i = 0; i < entities.size(); i++) {
+			Entity entity = entities.get(i);
+			CPhysics obj = pm.get(entity);
+			Body body = removed.remove(obj);
+			if (body == null) {
+				body = createBody(obj, entity);
+				bodies.put(obj, body);
+			}
+			int slot = world.add(obj, entity);
+			if (slotBodies.length <= slot) {
+				slotBodies = Arrays.copyOf(slotBodies, slotBodies.length * 2);
+				steppedX = Arrays.copyOf(steppedX, slotBodies.length);
+				steppedY = Arrays.copyOf(steppedY, slotBodies.length);
+			}
+			slotBodies[slot] = body;
+			steppedX[slot] = body.getPosition().x;
+			steppedY[slot] = body.getPosition().y;
+		}
+		for (Iterator<Map.Entry<CPhysics, Body>> it = removed.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<CPhysics, Body> entry = it.next();
+			bodies.remove(entry.getKey());
+			box2dWorld.destroyBody(entry.getValue());
+		}
+		for (int i = world.size(); i < slotBodies.length && slotBodies[i] != null; i++) {
+			slotBodies[i] = null;
+		}
+		bodiesDirty = false;
+	}
+
+	private Body createBody(CPhysics obj, Entity entity) {
+		BodyDef bodyDef = new BodyDef();
+		bodyDef.type = isStatic(obj) ? BodyDef.BodyType.StaticBody : BodyDef.BodyType.DynamicBody;
+		bodyDef.position.set(obj.getPosition());
+		bodyDef.linearVelocity.set(obj.getVelocity());
+		bodyDef.fixedRotation = true;
+		bodyDef.gravityScale = obj.isGravityApplied() ? obj.getGravity() : 0;
+		Body body = box2dWorld.createBody(bodyDef);
+		body.setUserData(entity);
+
+		PolygonShape shape = new PolygonShape();
+		shape.setAsBox(obj.getSize().x / 2 - POLYGON_SKIN, obj.getSize().y / 2 - POLYGON_SKIN);
+		FixtureDef fixtureDef = new FixtureDef();
+		fixtureDef.shape = shape;
+		fixtureDef.density = 1;
+		fixtureDef.friction = 0;
+		fixtureDef.isSensor = obj.isGhost();
+		fixtureDef.filter.categoryBits = (short) obj.getCollisionLayer();
+		fixtureDef.filter.maskBits = (short) obj.getCollisionMask();
+		body.createFixture(fixtureDef);
+		shape.dispose();
+		return body;
+	}
+
+	@Override
+	public void queryAABB(float x, float y, float width, float height, int mask, OverlapListener listener) {
+		if (bodiesDirty) {
+			rebuildBodies();
+		}
+		queryX0 = x - width / 2;
+		queryY0 = y - height / 2;
+		queryX1 = x + width / 2;
+		queryY1 = y + height / 2;
+		queryMask = mask;
+		queryListener = listener;
+		box2dWorld.QueryAABB(queryCallback, queryX0, queryY0, queryX1, queryY1);
+		queryListener = null;
+	}
+
+	@Override
+	public void updateEntities(Engine engine) {
+		entities = engine.getEntitiesFor(Family.getFor(CPhysics.class));
+		bodiesDirty = true;
+	}
+
+	/**
+	 * @param updatesPerSecond How many fixed steps are simulated per second
+	 * @return Returns the instance this methdod was called from
+	 */
+	public Box2DPhysicsSystem setUpdatesPerSecond(float updatesPerSecond) {
+		this.updatesPerSecond = updatesPerSecond;
+		return this;
+	}
+
+	@Override
+	public float getUpdatesPerSecond() {
+		return this.updatesPerSecond;
+	}
+
+	@Override
+	public float getInterpolationAlpha() {
+		return this.interpolationAlpha;
+	}
+
+}
@@ -20,13 +20,16 @@ package com.saltosion.gladiator.systems;
 import com.badlogic.ashley.core.ComponentMapper;
 import com.badlogic.ashley.core.Engine;
 import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntityListener;
 import com.badlogic.ashley.core.EntitySystem;
 import com.badlogic.ashley.core.Family;
 import com.badlogic.ashley.utils.ImmutableArray;
 import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
 import com.saltosion.gladiator.components.CCombat;
-import com.saltosion.gladiator.components.CDestructive;
 import com.saltosion.gladiator.components.CPhysics;
 import com.saltosion.gladiator.listeners.CombatListener;
 import com.saltosion.gladiator.listeners.SwingHitboxListener;
@@ -42,13 +45,42 @@ public class CombatSystem extends EntitySystem {
 	private final ComponentMapper<CPhysics> pm = ComponentMapper.getFor(CPhysics.class);
 	private ImmutableArray<Entity> entities;
 
+	// The hitboxes of the swings are queried from the physics system while
+	// they last, instead of being bodies in it. The times are the lifetimes
+	// left of the active ones, the finished ones are reused.
+	private final Array<SwingHitboxListener> activeHitboxes = new Array<SwingHitboxListener>(false, 16);
+	private final FloatArray hitboxTimes = new FloatArray(false, 16);
+	private final Array<SwingHitboxListener> freeHitboxes = new Array<SwingHitboxListener>(false, 16);
+	// The hits of the current update, resolved together at the end of it
+	private final Array<Entity> damageSources = new Array<Entity>(false, 16);
+	private final Array<Entity> damageTargets = new Array<Entity>(false, 16);
+	private final IntArray damageAmounts = new IntArray(false, 16);
+	private final EntityListener fighterRemovalListener = new EntityListener() {
+		@Override
+		public void entityAdded(Entity entity) {
+		}
+
+		@Override
+		public void entityRemoved(Entity entity) {
+			endSwingsOf(entity);
+		}
+	};
+
 	@Override
 	public void addedToEngine(Engine engine) {
 		updateEntities(engine);
+		engine.addEntityListener(Family.getFor(CCombat.class), fighterRemovalListener);
+	}
+
+	@Override
+	public void removedFromEngine(Engine engine) {
+		engine.removeEntityListener(fighterRemovalListener);
 	}
 
 	@Override
 	public void update(float deltaTime) {
+		updateHitboxes(deltaTime);
+
 		for (int i = 0; i < entities.size(); i++) {
 			Entity e = entities.get(i);
 			CCombat combat = cm.get(e);
@@ -94,22 +126,89 @@ public class CombatSystem extends EntitySystem {
 				Sound s = AppUtil.jukebox.returnRandomSound(AudioLoader.getSound(Name.SOUND_SWING01),
 						AudioLoader.getSound(Name.SOUND_SWING02),
 						AudioLoader.getSound(Name.SOUND_SWING03));
-				s.play(AppUtil.sfxVolume);
+				AppUtil.jukebox.playSound(s, AppUtil.sfxVolume);
 
 				// After-swing
 				combat.swingCdCounter = combat.getSwingDuration();
 			}
 		}
+
+		resolveDamage();
 	}
 
 	public void createSwingHitbox(Entity source, Direction direction, Vector2 position) {
-		Entity e = new Entity();
-		CCombat combat = cm.get(source);
-		e.add(new CPhysics().setGhost(true).setGravityApplied(false).setMovable(false)
-				.setSize(combat.getSwingSize()).setPosition(position)
-				.setCollisionListener(new SwingHitboxListener(source, direction)));
-		e.add(new CDestructive(combat.getSwingDuration() / 2));
-		AppUtil.engine.addEntity(e);
+		createSwingHitbox(source, direction, position, cm.get(source).getSwingDuration() / 2);
+	}
+
+	/**
+	 * Activates a swing hitbox, reusing one of the previous ones if possible.
+	 *
+	 * @param source The entity that swings
+	 * @param direction The direction of the swing
+	 * @param position The centre of the hitbox
+	 * @param duration How long the hitbox stays active, in seconds
+	 */
+	public void createSwingHitbox(Entity source, Direction direction, Vector2 position, float duration) {
+		SwingHitboxListener hitbox = freeHitboxes.size > 0 ? freeHitboxes.pop() : new SwingHitboxListener(this);
+		Vector2 size = cm.get(source).getSwingSize();
+		hitbox.activate(source, direction, position.x, position.y, size.x, size.y);
+		activeHitboxes.add(hitbox);
+		hitboxTimes.add(duration);
+	}
+
+	/**
+	 * Counts down the lifetimes of the active hitboxes and hits the fighters
+	 * and the other swings inside them. The ones that have run out are put
+	 * back into the pool.
+	 */
+	private void updateHitboxes(float deltaTime) {
+		for (int i = activeHitboxes.size - 1; i >= 0; i--) {
+			SwingHitboxListener hitbox = activeHitboxes.get(i);
+			if (hitboxTimes.items[i] <= 0) {
+				hitbox.deactivate();
+				freeHitboxes.add(activeHitboxes.removeIndex(i));
+				hitboxTimes.removeIndex(i);
+				continue;
+			}
+			hitboxTimes.items[i] -= deltaTime;
+			AppUtil.physicsSystem.queryAABB(hitbox.getX(), hitbox.getY(), hitbox.getWidth(), hitbox.getHeight(),
+					Global.LAYER_FIGHTER, hitbox);
+		}
+
+		// Swings that meet each other clang
+		for (int i = 0; i < activeHitboxes.size; i++) {
+			SwingHitboxListener hitbox = activeHitboxes.get(i);
+			for (int j = i + 1; j < activeHitboxes.size; j++) {
+				SwingHitboxListener other = activeHitboxes.get(j);
+				if (hitbox.overlaps(other)) {
+					hitbox.clash(other);
+					other.clash(hitbox);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Ends the swings of a fighter when it's removed from the engine, for
+	 * example when it dies or the level changes.
+	 */
+	private void endSwingsOf(Entity source) {
+		for (int i = activeHitboxes.size - 1; i >= 0; i--) {
+			SwingHitboxListener hitbox = activeHitboxes.get(i);
+			if (hitbox.getSource() == source) {
+				hitbox.deactivate();
+				freeHitboxes.add(activeHitboxes.removeIndex(i));
+				hitboxTimes.removeIndex(i);
+			}
+		}
+	}
+
+	/**
+	 * @return The swings that are active at the moment, for drawing them in
+	 * the debug mode
+	 */
+	public Array<SwingHitboxListener> getActiveHitboxes() {
+		return this.activeHitboxes;
 	}
 
 	public void updateEntities(Engine engine) {
@@ -118,14 +217,53 @@ public class CombatSystem extends EntitySystem {
 
 	/**
 	 * Deal <b>damage</b> to <b>target</b>. Source is optional, leave null if
-	 * none.
+	 * none. The damage is taken at the end of the current update of the
+	 * system, together with the other hits the <b>target</b> takes during it.
 	 *
 	 * @param source Source of the <b>damage</b>.
 	 * @param target Target to kill.
 	 * @param damage Damage taken, that was dealth to the <b>target</b>.
 	 */
-	public static void dealDamage(Entity source, Entity target, int damage) {
-		CCombat combat = target.getComponent(CCombat.class);
+	public void dealDamage(Entity source, Entity target, int damage) {
+		damageSources.add(source);
+		damageTargets.add(target);
+		damageAmounts.add(damage);
+	}
+
+	/**
+	 * Sums up the hits of the update per target, and lets each target take
+	 * them at once. The source of the last hit is told to the listener as the
+	 * source of all of them.
+	 */
+	private void resolveDamage() {
+		// There are only a few hits per update, so the targets are merged
+		// by going through the rest of the hits
+		for (int i = 0; i < damageTargets.size; i++) {
+			Entity target = damageTargets.get(i);
+			if (target == null) {
+				continue;
+			}
+			Entity source = damageSources.get(i);
+			int damage = damageAmounts.get(i);
+			for (int j = i + 1; j < damageTargets.size; j++) {
+				if (damageTargets.get(j) == target) {
+					source = damageSources.get(j);
+					damage += damageAmounts.get(j);
+					damageTargets.set(j, null);
+				}
+			}
+			takeDamage(source, target, damage);
+		}
+		damageSources.clear();
+		damageTargets.clear();
+		damageAmounts.clear();
+	}
+
+	private void takeDamage(Entity source, Entity target, int damage) {
+		CCombat combat = cm.get(target);
+		if (combat == null || combat.health <= 0) {
+			return; // Already dead, or not a fighter anymore
+		}
 		CombatListener listener = combat.getCombatListener();
 		if (listener != null) {
 			listener.damageTaken(source, target, damage);
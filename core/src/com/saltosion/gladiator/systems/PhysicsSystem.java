@@ -20,110 +20,742 @@ package com.saltosion.gladiator.systems;
 import com.badlogic.ashley.core.ComponentMapper;
 import com.badlogic.ashley.core.Engine;
 import com.badlogic.ashley.core.Entity;
-import com.badlogic.ashley.core.EntitySystem;
 import com.badlogic.ashley.core.Family;
 import com.badlogic.ashley.utils.ImmutableArray;
+import com.badlogic.gdx.utils.IntArray;
 import com.saltosion.gladiator.components.CCombat;
 import com.saltosion.gladiator.components.CPhysics;
+import com.saltosion.gladiator.listeners.CollisionListener;
+import com.saltosion.gladiator.listeners.OverlapListener;
+import com.saltosion.gladiator.physics.Broadphase;
+import com.saltosion.gladiator.physics.PhysicsWorld;
+import com.saltosion.gladiator.physics.SpatialHashBroadphase;
 import com.saltosion.gladiator.util.AppUtil;
 import com.saltosion.gladiator.util.AudioLoader;
 import com.saltosion.gladiator.util.Direction;
-import com.saltosion.gladiator.util.Log;
 import com.saltosion.gladiator.util.Name;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
-public class PhysicsSystem extends EntitySystem {
+/**
+ * The hand-written physics engine of the game. The dynamic bodies and the
+ * static level geometry are kept in two PhysicsWorlds, and the collision
+ * candidates of each body are found with a broadphase.
+ *
+ * In the parallel mode, only the per-body passes and the broadphase queries
+ * run on several threads. The narrowphase, testing and resolving the
+ * candidate pairs, still runs in slot order on the calling thread.
+ */
+public class PhysicsSystem extends BasePhysicsSystem {
 
-	private static final float MAX_VEL = 1.75f, COLLISION_PRECISION = 12f, UPDATES_PER_SECOND = 300f;
+	private static final float MAX_SPEED = 525f, COLLISION_PRECISION = 12f, UPDATES_PER_SECOND = 120f;
+	// Movements shorter than this can't carry a body through anything
+	private static final float MIN_SWEEP_DISTANCE = 0.01f;
+	// How deep into the resolvable depth of collision() swept bodies can sink
+	private static final float SLOP = 0.9f, SHARED_SLOP = 0.45f;
+	private static final int MAX_STEPS_PER_FRAME = 30;
+	private static final float BROADPHASE_CELL_SIZE = 4f;
+	// A body that moves less than this during a step is considered to be at rest
+	private static final float REST_DISTANCE = 0.001f;
+	private static final int SLEEP_STEPS = 60;
+	// Below this many bodies the parallel mode runs on a single thread
+	private static final int PARALLEL_MIN_BODIES = 64;
+	private static final int PASS_PREPARE = 0, PASS_MOVE = 1, PASS_PREQUERY = 2;
 
 	private static final ComponentMapper<CPhysics> pm = ComponentMapper.getFor(CPhysics.class);
 	private static final ComponentMapper<CCombat> cm = ComponentMapper.getFor(CCombat.class);
 	private ImmutableArray<Entity> entities;
 
+	private float updatesPerSecond = UPDATES_PER_SECOND;
+	private int maxStepsPerFrame = MAX_STEPS_PER_FRAME;
+	private int sleepSteps = SLEEP_STEPS;
+	private float accumulator = 0;
+	private float interpolationAlpha = 1;
+
+	// The bodies that are simulated every step, and the static level geometry
+	private final PhysicsWorld world = new PhysicsWorld(64);
+	private final PhysicsWorld staticWorld = new PhysicsWorld(16);
+	private boolean bodiesDirty = true;
+
+	private Broadphase broadphase = new SpatialHashBroadphase(BROADPHASE_CELL_SIZE);
+	private final Broadphase staticBroadphase = new SpatialHashBroadphase(BROADPHASE_CELL_SIZE);
+	private final IntArray candidates = new IntArray();
+	private final IntArray queryResults = new IntArray();
+
+	// Static bodies never move, so their bounds are calculated only once
+	private float[] staticBounds = new float[0];
+	// All the collision layers the static bodies are in
+	private int staticLayers = 0;
+	// Bodies that are swinging move at half speed
+	private boolean[] slowed = new boolean[0];
+	// How far each body tries to move during the current step
+	private float[] displacementX = new float[0], displacementY = new float[0];
+	// The earliest contact found by sweepAgainst()
+	private float sweepTime, sweepSlop, sweepRelative, sweepPartner;
+	private boolean sweepHit, sweepHitX;
+
+	// Collisions found during a step, dispatched to the listeners after it
+	private CollisionListener[] eventListeners = new CollisionListener[64];
+	private Entity[] eventHosts = new Entity[64], eventOthers = new Entity[64];
+	private Direction[] eventSides = new Direction[64];
+	private int eventCount = 0;
+
+	// Bodies that jumped during the step, their sounds are played after it
+	private boolean[] jumped = new boolean[0];
+
+	// Parallel mode: the per-body passes are split into chunks that the
+	// executor runs at the same time, the collisions are resolved in order
+	private ExecutorService executor = null;
+	private final ArrayList<Chunk> chunks = new ArrayList<Chunk>();
+	private IntArray[] dynamicCandidates = new IntArray[0], staticCandidates = new IntArray[0];
+	private boolean[] prequeried = new boolean[0];
+	// Bodies pushed during the collision pass
+	private boolean[] pushed = new boolean[0];
+	private final IntArray pushedBodies = new IntArray();
+
 	@Override
 	public void addedToEngine(Engine engine) {
 		updateEntities(engine);
 	}
 
+	@Override
+	public void removedFromEngine(Engine engine) {
+		setParallel(false);
+	}
+
 	@Override
 	public void update(float deltaTime) {
-		float freq = 1f / UPDATES_PER_SECOND;
-		int times = (int) Math.ceil(deltaTime / freq);
-		deltaTime /= (float) times;
-		for (int t = 0; t < times; t++) {
-			for (int i = 0; i < entities.size(); i++) {
-				CPhysics obj = pm.get(entities.get(i));
-				CCombat combat = cm.get(entities.get(i));
-
-				// Apply movement
-				obj.getPosition().add(Math.max(Math.min(obj.getVelocity().x * deltaTime, MAX_VEL), -MAX_VEL),
-						Math.max(Math.min(obj.getVelocity().y * deltaTime, MAX_VEL), -MAX_VEL));
-
-				// Movement
-				if (obj.isMovable()) {
-					float move = 0;
-					if (obj.movingLeft) {
-						move--;
-						obj.movedLeftLast = true;
-					}
-					if (obj.movingRight) {
-						move++;
-						obj.movedLeftLast = false;
-					}
-					obj.getVelocity().x = move * obj.getMovespeed();
-					if (combat != null) {
-						if (combat.swingCdCounter > 0) {
-							obj.getVelocity().x /= 2;
-						}
-					}
-					if (obj.jumping && obj.isGrounded()) {
-						obj.setGrounded(false);
-						obj.getVelocity().y = obj.getJumpForce();
-
-						// Sound effect!
-						AppUtil.jukebox.playSound(AudioLoader.getSound(Name.SOUND_STEP), AppUtil.sfxVolume);
-					}
-
-					obj.getVelocity().x += obj.getSimVelocity().x;
-					obj.getVelocity().y += obj.getSimVelocity().y;
-
-					obj.getSimVelocity().x -= obj.getDrag() * deltaTime * Math.signum(obj.getSimVelocity().x);
-					obj.getSimVelocity().y -= obj.getDrag() * deltaTime * Math.signum(obj.getSimVelocity().y);
+		if (bodiesDirty) {
+			rebuildBodies();
+		} else {
+			// Catch up with position changes made outside of the physics system
+			for (int i = 0; i < world.size(); i++) {
+				updateBroadphase(i);
+			}
+		}
+		for (int i = 0; i < world.size(); i++) {
+			CCombat combat = cm.get(world.getEntity(i));
+			slowed[i] = combat != null && combat.swingCdCounter > 0;
+		}
+
+		float stepTime = 1f / updatesPerSecond;
+		accumulator += deltaTime;
+		int steps = 0;
+		while (accumulator >= stepTime && steps < maxStepsPerFrame) {
+			step(stepTime);
+			accumulator -= stepTime;
+			steps++;
+		}
+		if (accumulator >= stepTime) {
+			// Too far behind, drop the time that couldn't be simulated instead of
+			// trying to catch up with it during the next frames
+			accumulator %= stepTime;
+		}
+		interpolationAlpha = accumulator / stepTime;
+	}
+
+	/**
+	 * Advances the simulation by one fixed step.
+	 *
+	 * @param deltaTime Length of the step in seconds
+	 */
+	private void step(float deltaTime) {
+		int n = world.size();
+		int[] flags = world.flags;
+		boolean parallel = executor != null && n >= PARALLEL_MIN_BODIES;
+
+		float maxDisplacement = runPass(PASS_PREPARE, n, deltaTime, parallel);
+		for (int i = 0; i < n; i++) {
+			if ((flags[i] & (PhysicsWorld.PROCESS_COLLISIONS | PhysicsWorld.GHOST | PhysicsWorld.SLEEPING))
+					== PhysicsWorld.PROCESS_COLLISIONS) {
+				sweep(i, maxDisplacement);
+			}
+		}
+		runPass(PASS_MOVE, n, deltaTime, parallel);
+		for (int i = 0; i < n; i++) {
+			if (jumped[i]) {
+				jumped[i] = false;
+				// Sound effect!
+				AppUtil.jukebox.playSound(AudioLoader.getSound(Name.SOUND_STEP), AppUtil.sfxVolume);
+			}
+		}
+
+		// Collisions
+		for (int i = 0; i < n; i++) {
+			updateBroadphase(i);
+		}
+		if (parallel) {
+			runPass(PASS_PREQUERY, n, deltaTime, true);
+		}
+		for (int i = 0; i < n; i++) {
+			if ((flags[i] & (PhysicsWorld.PROCESS_COLLISIONS | PhysicsWorld.SLEEPING)) == PhysicsWorld.PROCESS_COLLISIONS) {
+				boolean queried = parallel && prequeried[i];
+				boolean moved = processCollisions(i, world, broadphase, queried ? dynamicCandidates[i] : null);
+				if ((world.collisionMasks[i] & staticLayers) != 0) {
+					processCollisions(i, staticWorld, staticBroadphase, queried && !moved ? staticCandidates[i] : null);
 				}
+			}
+		}
+		for (int p = 0; p < pushedBodies.size; p++) {
+			pushed[pushedBodies.get(p)] = false;
+		}
+		pushedBodies.clear();
+
+		if (sleepSteps > 0) {
+			updateSleeping(deltaTime);
+		}
+		dispatchCollisions();
+	}
+
+	/**
+	 * Runs a per-body pass over all the dynamic bodies, split between the
+	 * executor threads in parallel mode.
+	 *
+	 * @return The largest result of the chunks
+	 */
+	private float runPass(int pass, int n, float deltaTime, boolean parallel) {
+		if (!parallel) {
+			return runChunk(pass, 0, n, deltaTime);
+		}
+		int count = chunks.size();
+		for (int c = 0; c < count; c++) {
+			chunks.get(c).set(pass, n * c / count, n * (c + 1) / count, deltaTime);
+		}
+		try {
+			List<Future<Object>> futures = executor.invokeAll(chunks);
+			for (int c = 0; c < count; c++) {
+				futures.get(c).get();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted during a physics step", ex);
+		} catch (ExecutionException ex) {
+			throw new IllegalStateException("A physics thread failed", ex.getCause());
+		}
+		float result = 0;
+		for (int c = 0; c < count; c++) {
+			result = Math.max(result, chunks.get(c).result);
+		}
+		return result;
+	}
+
+	private float runChunk(int pass, int start, int end, float deltaTime) {
+		switch (pass) {
+			case PASS_PREPARE:
+				return prepareBodies(start, end, deltaTime);
+			case PASS_MOVE:
+				moveBodies(start, end, deltaTime);
+				return 0;
+			case PASS_PREQUERY:
+				prequeryCollisions(start, end);
+				return 0;
+			default:
+				return 0;
+		}
+	}
+
+	/**
+	 * Remembers where the bodies were for interpolation, wakes up the bodies
+	 * that got input and calculates how far each body tries to move.
+	 *
+	 * @return The longest displacement in the range
+	 */
+	private float prepareBodies(int start, int end, float deltaTime) {
+		float[] vx = world.velocityX, vy = world.velocityY;
+		int[] flags = world.flags;
+		float maxDistance = MAX_SPEED * deltaTime;
+		float maxDisplacement = 0;
+		for (int i = start; i < end; i++) {
+			world.previousX[i] = world.positionX[i];
+			world.previousY[i] = world.positionY[i];
+
+			// Input wakes sleeping bodies up
+			if ((flags[i] & PhysicsWorld.SLEEPING) != 0 && hasInput(world.getBody(i))) {
+				world.wake(i);
+			}
+			if ((flags[i] & PhysicsWorld.SLEEPING) != 0) {
+				displacementX[i] = 0;
+				displacementY[i] = 0;
+				continue;
+			}
+			displacementX[i] = Math.max(Math.min(vx[i] * deltaTime, maxDistance), -maxDistance);
+			displacementY[i] = Math.max(Math.min(vy[i] * deltaTime, maxDistance), -maxDistance);
+			maxDisplacement = Math.max(maxDisplacement, Math.max(Math.abs(displacementX[i]), Math.abs(displacementY[i])));
+		}
+		return maxDisplacement;
+	}
+
+	/**
+	 * Moves the bodies and applies their input, drag and gravity. Jumps are
+	 * marked in the jumped array, so that their sounds are played on the
+	 * thread running the system.
+	 */
+	private void moveBodies(int start, int end, float deltaTime) {
+		float[] px = world.positionX, py = world.positionY;
+		float[] vx = world.velocityX, vy = world.velocityY;
+		float[] svx = world.simVelocityX, svy = world.simVelocityY;
+		int[] flags = world.flags;
+		for (int i = start; i < end; i++) {
+			if ((flags[i] & PhysicsWorld.SLEEPING) != 0) {
+				continue;
+			}
+			// Apply movement
+			px[i] += displacementX[i];
+			py[i] += displacementY[i];
 
-				// Gravity
-				if (obj.isGravityApplied()) {
-					obj.getVelocity().y -= obj.getGravity() * deltaTime;
+			// Movement
+			if ((flags[i] & PhysicsWorld.MOVABLE) != 0) {
+				CPhysics obj = world.getBody(i);
+				float move = 0;
+				if (obj.movingLeft) {
+					move--;
+					obj.movedLeftLast = true;
 				}
+				if (obj.movingRight) {
+					move++;
+					obj.movedLeftLast = false;
+				}
+				vx[i] = move * world.movespeed[i];
+				if (slowed[i]) {
+					vx[i] /= 2;
+				}
+				if (obj.jumping && (flags[i] & PhysicsWorld.GROUNDED) != 0) {
+					flags[i] &= ~PhysicsWorld.GROUNDED;
+					vy[i] = world.jumpForce[i];
+					jumped[i] = true;
+				}
+
+				vx[i] += svx[i];
+				vy[i] += svy[i];
+
+				svx[i] -= world.drag[i] * deltaTime * Math.signum(svx[i]);
+				svy[i] -= world.drag[i] * deltaTime * Math.signum(svy[i]);
+			}
 
-				// Collisions
-				if (obj.isProcessCollisions()) {
-					for (int j = 0; j < entities.size(); j++) {
-						if (i == j) {
-							continue;
-						}
-						try {
-							collision(entities.get(i), entities.get(j));
-						} catch (IndexOutOfBoundsException ex) {
-							Log.error("Tried to process collisions for a removed entity!");
-						}
-					}
+			// Gravity
+			if ((flags[i] & PhysicsWorld.GRAVITY_APPLIED) != 0) {
+				vy[i] -= world.gravity[i] * deltaTime;
+			}
+		}
+	}
+
+	/**
+	 * Finds the collision candidates of the bodies before the collision pass.
+	 * Only the broadphases are read, so the ranges can be queried at the same
+	 * time.
+	 */
+	private void prequeryCollisions(int start, int end) {
+		int[] flags = world.flags;
+		for (int i = start; i < end; i++) {
+			prequeried[i] = (flags[i] & (PhysicsWorld.PROCESS_COLLISIONS | PhysicsWorld.SLEEPING))
+					== PhysicsWorld.PROCESS_COLLISIONS;
+			if (!prequeried[i]) {
+				continue;
+			}
+			if (dynamicCandidates[i] == null) {
+				dynamicCandidates[i] = new IntArray();
+				staticCandidates[i] = new IntArray();
+			}
+			queryBroadphase(i, broadphase, dynamicCandidates[i]);
+			if ((world.collisionMasks[i] & staticLayers) != 0) {
+				queryBroadphase(i, staticBroadphase, staticCandidates[i]);
+			}
+		}
+	}
+
+	/**
+	 * Puts the bodies that have stayed at rest for sleepSteps steps to sleep.
+	 * Only movable bodies can fall asleep, and only while they are standing on
+	 * something without any input or velocity.
+	 *
+	 * @param deltaTime Length of the step in seconds
+	 */
+	private void updateSleeping(float deltaTime) {
+		int[] flags = world.flags;
+		for (int i = 0; i < world.size(); i++) {
+			if ((flags[i] & (PhysicsWorld.MOVABLE | PhysicsWorld.SLEEPING)) != PhysicsWorld.MOVABLE) {
+				continue;
+			}
+			if (isAtRest(i, deltaTime)) {
+				if (++world.restSteps[i] >= sleepSteps) {
+					flags[i] |= PhysicsWorld.SLEEPING;
 				}
+			} else {
+				world.restSteps[i] = 0;
 			}
 		}
 	}
 
-	public void collision(Entity entity0, Entity entity1) {
-		CPhysics cp0 = pm.get(entity0);
-		CPhysics cp1 = pm.get(entity1);
+	/**
+	 * A body standing on the ground only touches it on every other step: the
+	 * collision pass stops the body, and the next step gives it one step of
+	 * gravity that isn't removed until it sinks into the ground again. That
+	 * much downwards velocity still counts as resting.
+	 */
+	private boolean isAtRest(int i, float deltaTime) {
+		float restingVelocityY = (world.flags[i] & PhysicsWorld.GRAVITY_APPLIED) != 0 ? world.gravity[i] * deltaTime : 0;
+		return (world.flags[i] & PhysicsWorld.GROUNDED) != 0
+				&& world.velocityX[i] == 0 && world.velocityY[i] <= 0 && world.velocityY[i] >= -restingVelocityY
+				&& world.simVelocityX[i] == 0 && world.simVelocityY[i] == 0
+				&& Math.abs(world.positionX[i] - world.previousX[i]) < REST_DISTANCE
+				&& Math.abs(world.positionY[i] - world.previousY[i]) < REST_DISTANCE
+				&& !hasInput(world.getBody(i));
+	}
 
-		float x00 = cp0.getPosition().x - cp0.getSize().x / 2;
-		float x01 = cp0.getPosition().x + cp0.getSize().x / 2;
-		float x10 = cp1.getPosition().x - cp1.getSize().x / 2;
-		float x11 = cp1.getPosition().x + cp1.getSize().x / 2;
-		float y00 = cp0.getPosition().y - cp0.getSize().y / 2;
-		float y01 = cp0.getPosition().y + cp0.getSize().y / 2;
-		float y10 = cp1.getPosition().y - cp1.getSize().y / 2;
-		float y11 = cp1.getPosition().y + cp1.getSize().y / 2;
+	private static boolean hasInput(CPhysics obj) {
+		return obj.movingLeft || obj.movingRight || obj.jumping;
+	}
+
+	/**
+	 * Shortens the displacement of the body so that it can't pass through a
+	 * solid body during the step. The body is stopped a bit inside the first
+	 * body it would hit, not deeper than the collision pass can resolve, and
+	 * the collision pass then pushes it out the same way as with small steps.
+	 * Each hit stops the movement along one axis, the movement along the other
+	 * axis continues.
+	 *
+	 * @param i Slot of the body in the dynamic world
+	 * @param maxDisplacement The longest displacement of any body this step
+	 */
+	private void sweep(int i, float maxDisplacement) {
+		boolean limitedX = false, limitedY = false;
+		while (!limitedX || !limitedY) {
+			float dx = displacementX[i], dy = displacementY[i];
+			if (Math.abs(dx) + maxDisplacement <= MIN_SWEEP_DISTANCE
+					&& Math.abs(dy) + maxDisplacement <= MIN_SWEEP_DISTANCE) {
+				return;
+			}
+			sweepTime = 1;
+			sweepHit = false;
+			sweepAgainst(i, world, broadphase, maxDisplacement, limitedX, limitedY);
+			if ((world.collisionMasks[i] & staticLayers) != 0) {
+				sweepAgainst(i, staticWorld, staticBroadphase, 0, limitedX, limitedY);
+			}
+			if (!sweepHit) {
+				return;
+			}
+			if (sweepHitX) {
+				displacementX[i] = limitDisplacement(dx);
+				limitedX = true;
+			} else {
+				displacementY[i] = limitDisplacement(dy);
+				limitedY = true;
+			}
+		}
+	}
+
+	/**
+	 * @param displacement The displacement of the body along the hit axis
+	 * @return The displacement that stops the body sweepSlop deep into the
+	 * body it hits, wherever that body moves. The body is only slowed down,
+	 * never pulled along.
+	 */
+	private float limitDisplacement(float displacement) {
+		float distance = Math.abs(sweepRelative);
+		float limited = sweepPartner + Math.signum(sweepRelative) * Math.max(0, Math.min(distance, distance * sweepTime + sweepSlop));
+		return displacement > 0 ? Math.max(0, Math.min(displacement, limited)) : Math.min(0, Math.max(displacement, limited));
+	}
+
+	/**
+	 * Finds the earliest time of impact of the body in slot i with the solid
+	 * bodies of the partner world, relative to their own movement, and stores
+	 * it in sweepTime if it's earlier than the one found so far. Bodies that
+	 * already overlap slightly count as hit at a negative time, so that they
+	 * can't sink any deeper.
+	 *
+	 * @param margin How far the partners can move during the step
+	 */
+	private void sweepAgainst(int i, PhysicsWorld partners, Broadphase partnerBroadphase, float margin,
+			boolean limitedX, boolean limitedY) {
+		float x = world.positionX[i], y = world.positionY[i];
+		float dx = displacementX[i], dy = displacementY[i];
+		float halfWidth = world.sizeX[i] / 2, halfHeight = world.sizeY[i] / 2;
+		int mask = world.collisionMasks[i];
+		partnerBroadphase.query(Math.min(x, x + dx) - halfWidth - margin, Math.min(y, y + dy) - halfHeight - margin,
+				Math.max(x, x + dx) + halfWidth + margin, Math.max(y, y + dy) + halfHeight + margin, candidates);
+
+		for (int c = 0; c < candidates.size; c++) {
+			int j = candidates.get(c);
+			if ((partners == world && i == j) || (partners.flags[j] & PhysicsWorld.GHOST) != 0
+					|| (mask & partners.collisionLayers[j]) == 0) {
+				continue;
+			}
+			float rdx = dx, rdy = dy;
+			if (partners == world) {
+				rdx -= displacementX[j];
+				rdy -= displacementY[j];
+			}
+			if (rdx == 0 && rdy == 0) {
+				continue;
+			}
+			// Sweep a point against the partner grown by the size of the body
+			float w = halfWidth + partners.sizeX[j] / 2, h = halfHeight + partners.sizeY[j] / 2;
+			float x0 = partners.positionX[j] - w, x1 = partners.positionX[j] + w;
+			float y0 = partners.positionY[j] - h, y1 = partners.positionY[j] + h;
+
+			float enterX, exitX, enterY, exitY;
+			if (rdx > 0) {
+				enterX = (x0 - x) / rdx;
+				exitX = (x1 - x) / rdx;
+			} else if (rdx < 0) {
+				enterX = (x1 - x) / rdx;
+				exitX = (x0 - x) / rdx;
+			} else if (x > x0 && x < x1) {
+				enterX = Float.NEGATIVE_INFINITY;
+				exitX = Float.POSITIVE_INFINITY;
+			} else {
+				continue;
+			}
+			if (rdy > 0) {
+				enterY = (y0 - y) / rdy;
+				exitY = (y1 - y) / rdy;
+			} else if (rdy < 0) {
+				enterY = (y1 - y) / rdy;
+				exitY = (y0 - y) / rdy;
+			} else if (y > y0 && y < y1) {
+				enterY = Float.NEGATIVE_INFINITY;
+				exitY = Float.POSITIVE_INFINITY;
+			} else {
+				continue;
+			}
+
+			float enter = Math.max(enterX, enterY), exit = Math.min(exitX, exitY);
+			if (enter >= exit || exit <= 0 || enter >= sweepTime) {
+				continue; // Not touching during the step, or not the first
+			}
+			boolean hitX = enterX > enterY;
+			if (hitX ? limitedX : limitedY) {
+				continue;
+			}
+			// Most of the depth collision() resolves, or half of it when the
+			// partner is moving towards this body and takes the other half
+			float s0 = hitX ? world.sizeX[i] : world.sizeY[i], s1 = hitX ? partners.sizeX[j] : partners.sizeY[j];
+			float relative = hitX ? rdx : rdy, partner = hitX ? dx - rdx : dy - rdy;
+			float slop = (s0 + s1) / (COLLISION_PRECISION * (float) Math.sqrt(s0 > s1 ? s0 : s1))
+					* (partner * relative < 0 ? SHARED_SLOP : SLOP);
+			if (enter < 0 && -enter * Math.abs(relative) >= slop) {
+				continue; // Already overlapping too deep for this to help
+			}
+			sweepTime = enter;
+			sweepSlop = slop;
+			sweepRelative = relative;
+			sweepPartner = partner;
+			sweepHit = true;
+			sweepHitX = hitX;
+		}
+	}
+
+	/**
+	 * Stores a collision to be dispatched after the step. A pair only produces
+	 * one event per step, with the side found first.
+	 */
+	private void recordCollision(CollisionListener listener, Direction side, Entity host, Entity other) {
+		if (eventCount > 0 && eventHosts[eventCount - 1] == host && eventOthers[eventCount - 1] == other) {
+			return; // Collisions of a pair are always found one after another
+		}
+		if (eventCount == eventHosts.length) {
+			int newCapacity = eventCount * 2;
+			eventListeners = Arrays.copyOf(eventListeners, newCapacity);
+			eventHosts = Arrays.copyOf(eventHosts, newCapacity);
+			eventOthers = Arrays.copyOf(eventOthers, newCapacity);
+			eventSides = Arrays.copyOf(eventSides, newCapacity);
+		}
+		eventListeners[eventCount] = listener;
+		eventHosts[eventCount] = host;
+		eventOthers[eventCount] = other;
+		eventSides[eventCount] = side;
+		eventCount++;
+	}
+
+	/**
+	 * Calls the listeners of the collisions found during the step. The
+	 * listeners are free to add and remove entities, since the step is over.
+	 */
+	private void dispatchCollisions() {
+		for (int e = 0; e < eventCount; e++) {
+			eventListeners[e].collision(eventSides[e], eventHosts[e], eventOthers[e]);
+			eventListeners[e] = null;
+			eventHosts[e] = null;
+			eventOthers[e] = null;
+			eventSides[e] = null;
+		}
+		eventCount = 0;
+	}
+
+	/**
+	 * Runs the collisions of the body in slot i against the bodies the
+	 * broadphase reports as possible partners, in slot order.
+	 *
+	 * @param i Slot of the body in the dynamic world
+	 * @param partners The world the partners are in
+	 * @param partnerBroadphase The broadphase of the partner world
+	 * @param prequeried The candidates found for the body before the collision
+	 * pass, or null to query them now
+	 * @return True if the body was pushed
+	 */
+	private boolean processCollisions(int i, PhysicsWorld partners, Broadphase partnerBroadphase, IntArray prequeried) {
+		float[] px = world.positionX, py = world.positionY;
+		int mask = world.collisionMasks[i];
+		boolean moved = false;
+		IntArray list = prequeried;
+		if (list == null) {
+			queryBroadphase(i, partnerBroadphase, candidates);
+			list = candidates;
+		} else if (partners == world && pushedBodies.size > 0) {
+			// The bodies pushed since the query might have moved next to this
+			// one, so they are candidates too
+			candidates.clear();
+			candidates.addAll(prequeried);
+			candidates.addAll(pushedBodies);
+			sortUnique(candidates);
+			list = candidates;
+		}
+		int c = 0;
+		while (c < list.size) {
+			int j = list.get(c++);
+			if (partners == world && i == j) {
+				continue;
+			}
+			if ((mask & partners.collisionLayers[j]) == 0) {
+				continue; // Not interested in each other
+			}
+			if (partners == staticWorld && !overlapsStatic(i, j)) {
+				continue;
+			}
+			float x = px[i], y = py[i];
+			collision(i, partners, j);
+			if (px[i] != x || py[i] != y) {
+				// The body was pushed, so it might touch new bodies now
+				moved = true;
+				updateBroadphase(i);
+				if (executor != null && !pushed[i]) {
+					pushed[i] = true;
+					pushedBodies.add(i);
+				}
+				queryBroadphase(i, partnerBroadphase, candidates);
+				list = candidates;
+				c = 0;
+				while (c < list.size && list.get(c) <= j) {
+					c++;
+				}
+			}
+		}
+		return moved;
+	}
+
+	private void queryBroadphase(int i, Broadphase partnerBroadphase, IntArray result) {
+		float halfWidth = world.sizeX[i] / 2, halfHeight = world.sizeY[i] / 2;
+		partnerBroadphase.query(world.positionX[i] - halfWidth, world.positionY[i] - halfHeight,
+				world.positionX[i] + halfWidth, world.positionY[i] + halfHeight, result);
+	}
+
+	private static void sortUnique(IntArray ids) {
+		ids.sort();
+		int unique = 0;
+		for (int k = 0; k < ids.size; k++) {
+			if (unique == 0 || ids.items[unique - 1] != ids.items[k]) {
+				ids.items[unique++] = ids.items[k];
+			}
+		}
+		ids.size = unique;
+	}
+
+	/**
+	 * The same overlap test that collision() starts with, done against the
+	 * precalculated bounds of a static body.
+	 */
+	private boolean overlapsStatic(int i, int j) {
+		float halfWidth = world.sizeX[i] / 2, halfHeight = world.sizeY[i] / 2;
+		int b = j * 4;
+		return world.positionX[i] - halfWidth < staticBounds[b + 2] && world.positionX[i] + halfWidth > staticBounds[b]
+				&& world.positionY[i] - halfHeight < staticBounds[b + 3] && world.positionY[i] + halfHeight > staticBounds[b + 1];
+	}
+
+	private void updateBroadphase(int i) {
+		float halfWidth = world.sizeX[i] / 2, halfHeight = world.sizeY[i] / 2;
+		broadphase.update(i, world.positionX[i] - halfWidth, world.positionY[i] - halfHeight,
+				world.positionX[i] + halfWidth, world.positionY[i] + halfHeight);
+	}
+
+	/**
+	 * Moves the entities into the dynamic and the static world and rebuilds
+	 * both broadphases.
+	 */
+	private void rebuildBodies() {
+		world.clear();
+		staticWorld.clear();
+		broadphase.clear();
+		staticBroadphase.clear();
+
+		for (int i = 0; i < entities.size(); i++) {
+			Entity entity = entities.get(i);
+			CPhysics obj = pm.get(entity);
+			if (isStatic(obj)) {
+				staticWorld.add(obj, entity);
+			} else {
+				world.add(obj, entity);
+			}
+		}
+
+		if (slowed.length < world.size()) {
+			int capacity = world.size() * 2;
+			slowed = new boolean[capacity];
+			displacementX = new float[capacity];
+			displacementY = new float[capacity];
+			jumped = new boolean[capacity];
+			dynamicCandidates = Arrays.copyOf(dynamicCandidates, capacity);
+			staticCandidates = Arrays.copyOf(staticCandidates, capacity);
+			prequeried = new boolean[capacity];
+			pushed = new boolean[capacity];
+		}
+		for (int i = 0; i < world.size(); i++) {
+			updateBroadphase(i);
+		}
+
+		staticLayers = 0;
+		if (staticBounds.length < staticWorld.size() * 4) {
+			staticBounds = new float[staticWorld.size() * 8];
+		}
+		for (int j = 0; j < staticWorld.size(); j++) {
+			float halfWidth = staticWorld.sizeX[j] / 2, halfHeight = staticWorld.sizeY[j] / 2;
+			int b = j * 4;
+			staticBounds[b] = staticWorld.positionX[j] - halfWidth;
+			staticBounds[b + 1] = staticWorld.positionY[j] - halfHeight;
+			staticBounds[b + 2] = staticWorld.positionX[j] + halfWidth;
+			staticBounds[b + 3] = staticWorld.positionY[j] + halfHeight;
+			staticBroadphase.update(j, staticBounds[b], staticBounds[b + 1], staticBounds[b + 2], staticBounds[b + 3]);
+			staticWorld.previousX[j] = staticWorld.positionX[j];
+			staticWorld.previousY[j] = staticWorld.positionY[j];
+			staticLayers |= staticWorld.collisionLayers[j];
+		}
+		bodiesDirty = false;
+	}
+
+	/**
+	 * Resolves the collision of the body in slot i of the dynamic world with
+	 * the body in slot j of the partner world. Only the first body is moved.
+	 */
+	private void collision(int i, PhysicsWorld partners, int j) {
+		float[] px = world.positionX, py = world.positionY;
+		float[] vx = world.velocityX, vy = world.velocityY;
+		float w0 = world.sizeX[i], h0 = world.sizeY[i];
+		float w1 = partners.sizeX[j], h1 = partners.sizeY[j];
+
+		float x00 = px[i] - w0 / 2;
+		float x01 = px[i] + w0 / 2;
+		float x10 = partners.positionX[j] - w1 / 2;
+		float x11 = partners.positionX[j] + w1 / 2;
+		float y00 = py[i] - h0 / 2;
+		float y01 = py[i] + h0 / 2;
+		float y10 = partners.positionY[j] - h1 / 2;
+		float y11 = partners.positionY[j] + h1 / 2;
 
 		boolean colliding = (x00 < x11) && (x01 > x10) && (y00 < y11) && (y01 > y10);
 
@@ -131,78 +763,248 @@ public class PhysicsSystem extends EntitySystem {
 			return;
 		}
 
+		if ((partners.flags[j] & PhysicsWorld.SLEEPING) != 0) {
+			// Touched by an awake body
+			partners.wake(j);
+		}
+
+		boolean solid = ((world.flags[i] | partners.flags[j]) & PhysicsWorld.GHOST) == 0;
+		CollisionListener listener = world.getBody(i).getCollisionListener();
+		Entity entity0 = world.getEntity(i), entity1 = partners.getEntity(j);
+
 		boolean collidedAlready = false;
-		float precisionX = COLLISION_PRECISION * (float) Math.sqrt(cp0.getSize().x > cp1.getSize().x ? cp0.getSize().x : cp1.getSize().x);
-		float precisionY = COLLISION_PRECISION * (float) Math.sqrt(cp0.getSize().y > cp1.getSize().y ? cp0.getSize().y : cp1.getSize().y);
+		float precisionX = COLLISION_PRECISION * (float) Math.sqrt(w0 > w1 ? w0 : w1);
+		float precisionY = COLLISION_PRECISION * (float) Math.sqrt(h0 > h1 ? h0 : h1);
 
-		if (x00 <= x11 && Math.abs(x00 - x11) < (cp0.getSize().x + cp1.getSize().x) / precisionX) {
+		if (x00 <= x11 && Math.abs(x00 - x11) < (w0 + w1) / precisionX) {
 			// cp0's left side is colliding with cp1's right side
-			if (!cp0.isGhost() && !cp1.isGhost()) {
-				if (cp0.getVelocity().x < 0) {
+			if (solid) {
+				if (vx[i] < 0) {
 					// cp0 is going left, stop
-					cp0.getVelocity().x = 0;
+					vx[i] = 0;
 				}
-				cp0.getPosition().x += x11 - x00;
+				px[i] += x11 - x00;
 			}
 
-			if (cp0.getCollisionListener() != null) {
-				cp0.getCollisionListener().collision(Direction.LEFT, entity0, entity1);
+			if (listener != null) {
+				recordCollision(listener, Direction.LEFT, entity0, entity1);
 			}
 			collidedAlready = true;
 		}
-		if (x01 > x10 && Math.abs(x01 - x10) < (cp0.getSize().x + cp1.getSize().x) / precisionX) {
+		if (x01 > x10 && Math.abs(x01 - x10) < (w0 + w1) / precisionX) {
 			// cp0's right side is colliding with cp1's left side
-			if (!cp0.isGhost() && !cp1.isGhost()) {
-				if (cp0.getVelocity().x > 0) {
+			if (solid) {
+				if (vx[i] > 0) {
 					// cp0 is going right, stop
-					cp0.getVelocity().x = 0;
+					vx[i] = 0;
 				}
-				cp0.getPosition().x += x10 - x01;
+				px[i] += x10 - x01;
 			}
 
-			if (cp0.getCollisionListener() != null) {
-				cp0.getCollisionListener().collision(Direction.RIGHT, entity0, entity1);
+			if (listener != null) {
+				recordCollision(listener, Direction.RIGHT, entity0, entity1);
 			}
 			collidedAlready = true;
 		}
-		if (y00 <= y11 && Math.abs(y00 - y11) < (cp0.getSize().y + cp1.getSize().y) / precisionY) {
+		if (y00 <= y11 && Math.abs(y00 - y11) < (h0 + h1) / precisionY) {
 			// cp0's bottom side is colliding with cp1's top side
-			if (!cp0.isGhost() && !cp1.isGhost()) {
-				if (cp0.getVelocity().y < 0) {
+			if (solid) {
+				if (vy[i] < 0) {
 					// cp0 is going down, stop
-					cp0.getVelocity().y = 0;
+					vy[i] = 0;
 				}
-				cp0.setGrounded(true);
-				cp0.getPosition().y += y11 - y00;
+				world.flags[i] |= PhysicsWorld.GROUNDED;
+				py[i] += y11 - y00;
 			}
 
-			if (cp0.getCollisionListener() != null) {
-				cp0.getCollisionListener().collision(Direction.DOWN, entity0, entity1);
+			if (listener != null) {
+				recordCollision(listener, Direction.DOWN, entity0, entity1);
 			}
 			collidedAlready = true;
 		}
-		if (y01 > y10 && Math.abs(y01 - y10) < (cp0.getSize().y + cp1.getSize().y) / precisionY) {
+		if (y01 > y10 && Math.abs(y01 - y10) < (h0 + h1) / precisionY) {
 			// cp0's top side is colliding with cp1's bottom side
-			if (!cp0.isGhost() && !cp1.isGhost()) {
-				if (cp0.getVelocity().y > 0) {
+			if (solid) {
+				if (vy[i] > 0) {
 					// cp0 is going up, stop
-					cp0.getVelocity().y = 0;
+					vy[i] = 0;
 				}
-				cp0.getPosition().y += y10 - y01;
+				py[i] += y10 - y01;
 			}
 
-			if (cp0.getCollisionListener() != null) {
-				cp0.getCollisionListener().collision(Direction.UP, entity0, entity1);
+			if (listener != null) {
+				recordCollision(listener, Direction.UP, entity0, entity1);
 			}
 			collidedAlready = true;
 		}
-		if (!collidedAlready && cp0.getCollisionListener() != null) {
-			cp0.getCollisionListener().collision(Direction.CENTRE, entity0, entity1);
+		if (!collidedAlready && listener != null) {
+			recordCollision(listener, Direction.CENTRE, entity0, entity1);
 		}
 	}
 
+	@Override
+	public void queryAABB(float x, float y, float width, float height, int mask, OverlapListener listener) {
+		if (bodiesDirty) {
+			rebuildBodies();
+		}
+		float x0 = x - width / 2, y0 = y - height / 2, x1 = x + width / 2, y1 = y + height / 2;
+		queryWorld(world, broadphase, x0, y0, x1, y1, mask, listener);
+		if ((staticLayers & mask) != 0) {
+			queryWorld(staticWorld, staticBroadphase, x0, y0, x1, y1, mask, listener);
+		}
+	}
+
+	private void queryWorld(PhysicsWorld bodies, Broadphase bodyBroadphase, float x0, float y0, float x1, float y1,
+			int mask, OverlapListener listener) {
+		bodyBroadphase.query(x0, y0, x1, y1, queryResults);
+		for (int c = 0; c < queryResults.size; c++) {
+			int j = queryResults.get(c);
+			if ((mask & bodies.collisionLayers[j]) == 0) {
+				continue;
+			}
+			// The broadphase only knows the cells, the same test collision() starts with
+			float halfWidth = bodies.sizeX[j] / 2, halfHeight = bodies.sizeY[j] / 2;
+			if (bodies.positionX[j] - halfWidth < x1 && bodies.positionX[j] + halfWidth > x0
+					&& bodies.positionY[j] - halfHeight < y1 && bodies.positionY[j] + halfHeight > y0) {
+				listener.overlap(bodies.getEntity(j));
+			}
+		}
+	}
+
+	@Override
 	public void updateEntities(Engine engine) {
 		entities = engine.getEntitiesFor(Family.getFor(CPhysics.class));
+		bodiesDirty = true;
+	}
+
+	/**
+	 * @param broadphase The broadphase used to find the possible collision
+	 * partners of an entity
+	 * @return Returns the instance this methdod was called from
+	 */
+	public PhysicsSystem setBroadphase(Broadphase broadphase) {
+		this.broadphase = broadphase;
+		this.bodiesDirty = true;
+		return this;
+	}
+
+	public Broadphase getBroadphase() {
+		return this.broadphase;
+	}
+
+	/**
+	 * @param parallel Toggles if the per-body work of a step (movement, gravity
+	 * and the broadphase queries for collision candidates) is split between
+	 * all the processors. The narrowphase tests and the collision responses
+	 * are not parallel: they still run in slot order on the calling thread,
+	 * so the results are exactly the same as without it. The broadphase must
+	 * allow queries from several threads at once.
+	 * @return Returns the instance this methdod was called from
+	 */
+	public PhysicsSystem setParallel(boolean parallel) {
+		if (parallel && executor == null) {
+			int threads = Runtime.getRuntime().availableProcessors();
+			executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				private int count = 0;
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "Physics-" + count++);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			for (int t = 0; t < threads; t++) {
+				chunks.add(new Chunk());
+			}
+		} else if (!parallel && executor != null) {
+			executor.shutdown();
+			executor = null;
+			chunks.clear();
+		}
+		return this;
+	}
+
+	public boolean isParallel() {
+		return this.executor != null;
+	}
+
+	/**
+	 * @param updatesPerSecond How many fixed steps are simulated per second
+	 * @return Returns the instance this methdod was called from
+	 */
+	public PhysicsSystem setUpdatesPerSecond(float updatesPerSecond) {
+		this.updatesPerSecond = updatesPerSecond;
+		return this;
+	}
+
+	/**
+	 * @param maxStepsPerFrame The most steps simulated during a single frame.
+	 * If a frame takes longer than this many steps, the rest of its time is
+	 * dropped, so a single slow frame can't make the next ones slow too.
+	 * @return Returns the instance this methdod was called from
+	 */
+	public PhysicsSystem setMaxStepsPerFrame(int maxStepsPerFrame) {
+		this.maxStepsPerFrame = maxStepsPerFrame;
+		return this;
+	}
+
+	/**
+	 * @param sleepSteps How many steps a body has to stay at rest before it's
+	 * put to sleep. A sleeping body isn't simulated until it gets input, its
+	 * velocity is set or an awake body touches it. 0 disables sleeping.
+	 * @return Returns the instance this methdod was called from
+	 */
+	public PhysicsSystem setSleepSteps(int sleepSteps) {
+		this.sleepSteps = sleepSteps;
+		if (sleepSteps <= 0) {
+			for (int i = 0; i < world.size(); i++) {
+				world.wake(i);
+			}
+		}
+		return this;
+	}
+
+	public int getSleepSteps() {
+		return this.sleepSteps;
+	}
+
+	@Override
+	public float getUpdatesPerSecond() {
+		return this.updatesPerSecond;
+	}
+
+	public int getMaxStepsPerFrame() {
+		return this.maxStepsPerFrame;
+	}
+
+	@Override
+	public float getInterpolationAlpha() {
+		return this.interpolationAlpha;
+	}
+
+	/**
+	 * A range of bodies a pass is run over by one executor thread.
+	 */
+	private class Chunk implements Callable<Object> {
+
+		private int pass, start, end;
+		private float deltaTime;
+		private float result;
+
+		private void set(int pass, int start, int end, float deltaTime) {
+			this.pass = pass;
+			this.start = start;
+			this.end = end;
+			this.deltaTime = deltaTime;
+		}
+
+		@Override
+		public Object call() {
+			result = runChunk(pass, start, end, deltaTime);
+			return null;
+		}
+
 	}
 
 }
@@ -30,11 +30,16 @@ import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.BitmapFontCache;
 import com.badlogic.gdx.graphics.g2d.Sprite;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer.ShapeType;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.Pool;
 import com.saltosion.gladiator.components.CAI;
 import com.saltosion.gladiator.components.CCombat;
 import com.saltosion.gladiator.components.CParticle;
@@ -44,17 +49,40 @@ import com.saltosion.gladiator.gui.nodes.GUINode;
 import com.saltosion.gladiator.gui.properties.ImageProperty;
 import com.saltosion.gladiator.gui.nodes.TextNode;
 import com.saltosion.gladiator.gui.properties.TextProperty;
+import com.saltosion.gladiator.listeners.SwingHitboxListener;
+import com.saltosion.gladiator.render.RenderSnapshot;
+import com.saltosion.gladiator.render.SnapshotBuffer;
 import com.saltosion.gladiator.util.AppUtil;
 import com.saltosion.gladiator.util.AudioLoader;
+import com.saltosion.gladiator.util.Direction;
+import com.saltosion.gladiator.util.FighterAnimations;
 import com.saltosion.gladiator.util.Global;
 import com.saltosion.gladiator.util.Name;
+import com.saltosion.gladiator.util.ProfiledEngine;
+import com.saltosion.gladiator.util.RollingWindow;
 import com.saltosion.gladiator.util.SpriteLoader;
 import com.saltosion.gladiator.util.SpriteSequence;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
+/**
+ * Copies the state of the entities into a snapshot every update, and draws the
+ * latest snapshot. Normally both happen during update(), but when the engine
+ * runs on a simulation thread of its own the snapshots are drawn by calling
+ * render() on the GL thread.
+ */
 public class RenderingSystem extends EntitySystem {
 
+	// How far above the centre of a fighter its healthbar is drawn
+	private static final float HEALTHBAR_OFFSET = 2.5f;
+	// The most sprites SpriteBatch can hold, so that big bursts of particles
+	// are still drawn with only a few draw calls
+	private static final int BATCH_SIZE = 5460;
+	// The profiler bar is this long per millisecond, and has a mark at the
+	// length of a 60 FPS frame
+	private static final float PROFILER_BAR_SCALE = 0.6f, FRAME_BUDGET = 1000f / 60;
+	private static final Color[] PROFILER_COLORS = {Color.RED, Color.ORANGE, Color.YELLOW, Color.GREEN,
+		Color.CYAN, Color.BLUE, Color.MAGENTA, Color.PINK};
+
 	private final ComponentMapper<CRenderedObject> rom = ComponentMapper.getFor(CRenderedObject.class);
 	private final ComponentMapper<CPhysics> pm = ComponentMapper.getFor(CPhysics.class);
 	private final ComponentMapper<CCombat> cm = ComponentMapper.getFor(CCombat.class);
@@ -62,9 +90,13 @@ public class RenderingSystem extends EntitySystem {
 	private final ComponentMapper<CParticle> pam = ComponentMapper.getFor(CParticle.class);
 	private ImmutableArray<Entity> entities;
 
+	private final SnapshotBuffer snapshots = new SnapshotBuffer();
+	private boolean threaded = false;
+
 	private SpriteBatch batch;
 	private BitmapFont font;
-	private ShapeRenderer debugRenderer, particleRenderer;
+	private ShapeRenderer debugRenderer;
+	private TextureRegion particleRegion;
 	private OrthographicCamera camera, fontCamera;
 
 	public float aspectratio;
@@ -79,31 +111,58 @@ public class RenderingSystem extends EntitySystem {
 	private long deltaAvgTimes;
 	private String deltaString = "0";
 
-	private List<TextObject> drawableText;
+	// Text that changes every frame, drawn with pooled objects
+	private final Array<TextObject> drawableText = new Array<TextObject>(false, 16);
+	private final Pool<TextObject> textPool = new Pool<TextObject>() {
+		@Override
+		protected TextObject newObject() {
+			return new TextObject();
+		}
+	};
+	private final StringBuilder debugText = new StringBuilder();
+	// The GUI text is laid out once, and again only when it changes
+	private final ObjectMap<TextProperty, CachedText> textCaches = new ObjectMap<TextProperty, CachedText>();
+	private final Array<BitmapFontCache> drawableCaches = new Array<BitmapFontCache>(false, 16);
 
 	private Sprite[] healthbar;
 	private boolean healthbarLoaded = false;
 	private float xMin = -15, xMax = 15;
 
+	private float interpolationAlpha = 1;
+	private final Vector2 cameraTarget = new Vector2();
+	private FighterAnimations fighterAnimations;
+
+	// The camera offsets of the parallax layers drawn this frame
+	private float cameraShiftX, cameraShiftY;
+	private float[] layerParallax = new float[4], layerOffsetX = new float[4], layerOffsetY = new float[4];
+	private int layerCount = 0;
+	private final Vector2 cameraOffset = new Vector2();
+
+	// The part of the world the camera sees this frame, and what was culled
+	private float viewLeft, viewRight, viewBottom, viewTop;
+	private int drawnEntities, culledEntities, drawnParticles, culledParticles;
+
+	// How long render() takes, and how many draw calls the batch made during
+	// the previous frame
+	private final RollingWindow drawTimes = new RollingWindow(ProfiledEngine.WINDOW_SIZE);
+	private int frameRenderCalls = 0, renderCallsAtFrameStart = 0;
+
 	@Override
 	public void addedToEngine(Engine engine) {
 		updateEntities(engine);
 
-		batch = new SpriteBatch();
+		batch = new SpriteBatch(BATCH_SIZE);
 
 		font = new BitmapFont(Gdx.files.internal("fonts/font.fnt"));
 		font.setUseIntegerPositions(false);
 
 		debugRenderer = new ShapeRenderer();
-		particleRenderer = new ShapeRenderer();
 
 		camera = new OrthographicCamera();
 		camera.setToOrtho(false, 1, 1);
 
 		fontCamera = new OrthographicCamera();
 		fontCamera.setToOrtho(false, Global.FONT_SCALE, Global.FONT_SCALE);
-
-		drawableText = new ArrayList<TextObject>();
 	}
 
 	public void setViewport(int width, int height) {
@@ -113,23 +172,64 @@ public class RenderingSystem extends EntitySystem {
 
 	@Override
 	public void update(float deltaTime) {
+		updateEntityAnimations(deltaTime);
+		takeSnapshot(snapshots.getWriteSnapshot(), deltaTime);
+		snapshots.publish();
+		if (!threaded) {
+			render(deltaTime);
+		}
+	}
+
+	/**
+	 * Draws the latest snapshot. Must be called on the GL thread.
+	 *
+	 * @param deltaTime The delta of the current frame
+	 */
+	public void render(float deltaTime) {
+		long drawStart = System.nanoTime();
+		RenderSnapshot snapshot = snapshots.getReadSnapshot();
 		camera.update();
 		fontCamera.update();
 
 		Gdx.gl.glClearColor(0, 0, 0, 0);
 		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 
-		updateEntityAnimations(deltaTime);
-		renderEntities(deltaTime);
-		renderParticles();
-		renderDebug();
-		renderGUI(new Vector2(0, 0));
+		// Render between the latest two physics steps. On a simulation thread
+		// the next step is already being simulated, so keep moving towards it.
+		interpolationAlpha = snapshot.interpolationAlpha;
+		if (threaded && snapshot.stepTime > 0) {
+			float sinceSnapshot = (System.nanoTime() - snapshot.time) / 1000000000f;
+			interpolationAlpha = Math.min(1, interpolationAlpha + sinceSnapshot / snapshot.stepTime);
+		}
+		if (snapshot.hasCameraTarget) {
+			cameraTarget.set(interpolate(snapshot.cameraPreviousX, snapshot.cameraX),
+					interpolate(snapshot.cameraPreviousY, snapshot.cameraY));
+		}
+		updateCameraOffsets();
+
+		renderEntities(snapshot);
+		renderDebug(snapshot);
+		renderGUI();
 
 		if (debug) {
-			drawString("FPS: " + Gdx.graphics.getFramesPerSecond(), new Vector2(camera.position.x - 12, camera.position.y + 8));
-			drawString("Delta (ms): " + getDeltaWithDelay(deltaTime, 0.1f), new Vector2(camera.position.x - 12, camera.position.y + 7));
+			float x = camera.position.x - 12, y = camera.position.y;
+			debugText.setLength(0);
+			drawString(debugText.append("FPS: ").append(Gdx.graphics.getFramesPerSecond()), x, y + 8);
+			debugText.setLength(0);
+			drawString(debugText.append("Delta (ms): ").append(getDeltaWithDelay(deltaTime, 0.1f)), x, y + 7);
+			debugText.setLength(0);
+			drawString(debugText.append("Entities drawn/culled: ").append(drawnEntities).append('/').append(culledEntities),
+					x, y + 6);
+			debugText.setLength(0);
+			drawString(debugText.append("Particles drawn/culled: ").append(drawnParticles).append('/').append(culledParticles),
+					x, y + 5);
+			renderProfiler(x, y + 4);
 		}
 		renderFont(fontCamera);
+
+		drawTimes.add((System.nanoTime() - drawStart) / 1000000f);
+		frameRenderCalls = batch.totalRenderCalls - renderCallsAtFrameStart;
+		renderCallsAtFrameStart = batch.totalRenderCalls;
 	}
 
 	/**
@@ -166,64 +266,20 @@ public class RenderingSystem extends EntitySystem {
 			return;
 		}
 
-		boolean moving = false, combat = false;
-		String dirMove = po.movedLeftLast ? "Left" : "Right";
-		String dirSwing = "";
-
-		if (po.movingLeft || po.movingRight) {
-			moving = true;
-		}
-		if (co.swingCdCounter > 0) {
-			combat = true;
-			switch (co.getSwingDirection()) {
-				default:
-				case RIGHT:
-					dirSwing += "Right";
-					break;
-				case LEFT:
-					dirSwing += "Left";
-					break;
-				case UP:
-					if (dirMove.equals("Left")) {
-						dirSwing = "Left-";
-					} else {
-						dirSwing = "Right-";
-					}
-					dirSwing += "Up";
-					break;
-				case DOWN:
-					if (dirMove.equals("Left")) {
-						dirSwing = "Left-";
-					} else {
-						dirSwing = "Right-";
-					}
-					dirSwing += "Down";
-					break;
-			}
+		if (fighterAnimations == null || fighterAnimations.getAnimations() != ro.getAnimations()) {
+			fighterAnimations = new FighterAnimations(ro.getAnimations());
 		}
+		boolean moving = po.movingLeft || po.movingRight;
+		Direction swing = co.swingCdCounter > 0 ? co.getSwingDirection() : null;
 
 		// Play animations & play sounds
 		if (po.stepCD > 0) {
 			po.stepCD -= deltaTime;
 		}
 
-		if (moving && combat) {
-			ro.playAnimation("torso", "Torso-Combat-" + dirSwing);
-			ro.playAnimation("legs", "Legs-Run-" + dirMove);
+		fighterAnimations.animate(ro, moving, po.isGrounded(), po.movedLeftLast, swing);
+		if (moving) {
 			tryToMakeStepSound(po);
-		} else if (combat) {
-			ro.playAnimation("torso", "Torso-Combat-" + dirSwing);
-			ro.playAnimation("legs", "Legs-Idle-" + dirMove);
-		} else if (moving) {
-			ro.playAnimation("torso", "Torso-Run-" + dirMove);
-			ro.playAnimation("legs", "Legs-Run-" + dirMove);
-			tryToMakeStepSound(po);
-		} else {
-			ro.playAnimation("torso", "Torso-Idle-" + dirMove);
-			ro.playAnimation("legs", "Legs-Idle-" + dirMove);
-		}
-		if (!po.isGrounded()) {
-			ro.playAnimation("legs", "Legs-Jump-" + dirMove);
 		}
 	}
 
@@ -235,127 +291,309 @@ public class RenderingSystem extends EntitySystem {
 		AppUtil.jukebox.playSound(AudioLoader.getSound(Name.SOUND_STEP), AppUtil.sfxVolume / 3 * 2);
 	}
 
-	private void renderEntities(float deltaTime) {
-		if (AppUtil.player == null) {
+	/**
+	 * Copies what is drawn out of the components, and advances the animations
+	 * past the copied frames.
+	 *
+	 * @param snapshot The snapshot to fill
+	 * @param deltaTime The delta of the current update
+	 */
+	private void takeSnapshot(RenderSnapshot snapshot, float deltaTime) {
+		CombatSystem combatSystem = AppUtil.engine.getSystem(CombatSystem.class);
+		Array<SwingHitboxListener> hitboxes = combatSystem != null ? combatSystem.getActiveHitboxes() : null;
+		snapshot.clear(entities.size(), entities.size(), hitboxes != null ? hitboxes.size : 0);
+		for (int i = 0; i < entities.size(); i++) {
+			Entity entity = entities.get(i);
+			CPhysics physics = pm.get(entity);
+			if (physics != null) {
+				int body = snapshot.bodyCount++;
+				snapshot.previousX[body] = physics.getPreviousPosition().x;
+				snapshot.previousY[body] = physics.getPreviousPosition().y;
+				snapshot.positionX[body] = physics.getPosition().x;
+				snapshot.positionY[body] = physics.getPosition().y;
+				snapshot.sizeX[body] = physics.getSize().x;
+				snapshot.sizeY[body] = physics.getSize().y;
+				snapshot.zParallax[body] = physics.getZParallax();
+
+				CAI ai = aim.get(entity);
+				snapshot.reactDistance[body] = ai != null ? ai.getReactDistance() : -1;
+				CCombat combat = cm.get(entity);
+				snapshot.health[body] = combat != null ? (float) combat.getHealth() / (float) combat.getMaxHealth() : -1;
+
+				CRenderedObject renderedObject = rom.get(entity);
+				if (renderedObject != null) {
+					takeSnapshot(snapshot, body, renderedObject, deltaTime);
+				} else {
+					snapshot.animations[body] = null;
+					snapshot.channelCount[body] = 0;
+				}
+			}
+
+			CParticle particle = pam.get(entity);
+			if (particle != null) {
+				int p = snapshot.particleCount++;
+				snapshot.particleX[p] = particle.getPosition().x;
+				snapshot.particleY[p] = particle.getPosition().y;
+				snapshot.particleWidth[p] = particle.getSize().x;
+				snapshot.particleHeight[p] = particle.getSize().y;
+				snapshot.particleColor[p] = particle.getColor().toFloatBits();
+			}
+		}
+
+		for (int i = 0; hitboxes != null && i < hitboxes.size; i++) {
+			SwingHitboxListener hitbox = hitboxes.get(i);
+			int h = snapshot.hitboxCount++;
+			snapshot.hitboxX[h] = hitbox.getX();
+			snapshot.hitboxY[h] = hitbox.getY();
+			snapshot.hitboxWidth[h] = hitbox.getWidth();
+			snapshot.hitboxHeight[h] = hitbox.getHeight();
+		}
+
+		CPhysics target = AppUtil.player != null ? pm.get(AppUtil.player) : null;
+		if (target != null) {
+			snapshot.hasCameraTarget = true;
+			snapshot.cameraPreviousX = target.getPreviousPosition().x;
+			snapshot.cameraPreviousY = target.getPreviousPosition().y;
+			snapshot.cameraX = target.getPosition().x;
+			snapshot.cameraY = target.getPosition().y;
+		}
+		BasePhysicsSystem physicsSystem = AppUtil.physicsSystem;
+		snapshot.interpolationAlpha = physicsSystem != null ? physicsSystem.getInterpolationAlpha() : 1;
+		snapshot.stepTime = physicsSystem != null ? 1f / physicsSystem.getUpdatesPerSecond() : 0;
+		snapshot.time = System.nanoTime();
+	}
+
+	private void takeSnapshot(RenderSnapshot snapshot, int body, CRenderedObject renderedObject, float deltaTime) {
+		snapshot.animations[body] = renderedObject.getAnimations();
+		snapshot.opaque[body] = renderedObject.isOpaque();
+		snapshot.channelCount[body] = renderedObject.getChannelCount();
+		for (int channel = 0; channel < renderedObject.getChannelCount(); channel++) {
+			int index = body * CRenderedObject.MAX_CHANNELS + channel;
+			snapshot.sequences[index] = renderedObject.getCurrentSequenceId(channel);
+			snapshot.frames[index] = renderedObject.getCurrentFrame(channel);
+
+			// The animations run even when the entity isn't on the screen
+			SpriteSequence currSequence = renderedObject.getChannelSequence(channel);
+			float nextFrame = renderedObject.getCurrentFrame(channel) + deltaTime * currSequence.getPlayspeed();
+			renderedObject.setCurrentFrame(channel, nextFrame % currSequence.frameCount());
+		}
+	}
+
+	private void renderEntities(RenderSnapshot snapshot) {
+		if (!snapshot.hasCameraTarget) {
 			return;
 		}
-		CPhysics playerPhys = pm.get(AppUtil.player);
+		if (!healthbarLoaded) {
+			loadHealthbarSprites();
+		}
+		drawnEntities = 0;
+		culledEntities = 0;
 		batch.setProjectionMatrix(camera.combined);
 		batch.begin();
-		for (int i = 0; i < entities.size(); i++) {
-			CPhysics physics = pm.get(entities.get(i));
-			CRenderedObject renderedObject = rom.get(entities.get(i));
-			if (renderedObject == null) {
+		for (int body = 0; body < snapshot.bodyCount; body++) {
+			if (snapshot.animations[body] == null) {
+				continue;
+			}
+			float x = interpolate(snapshot.previousX[body], snapshot.positionX[body]);
+			float y = interpolate(snapshot.previousY[body], snapshot.positionY[body]);
+			Vector2 offset = getCameraOffset(snapshot.zParallax[body]);
+			float hp = snapshot.health[body];
+
+			// Find out if any of the sprites or the healthbar is on the screen
+			float halfWidth = 0, halfHeight = 0;
+			for (int channel = 0; channel < snapshot.channelCount[body]; channel++) {
+				Sprite currSprite = getCurrentSprite(snapshot, body, channel);
+				halfWidth = Math.max(halfWidth, currSprite.getRegionWidth() * Math.abs(currSprite.getScaleX()) / 2);
+				halfHeight = Math.max(halfHeight, currSprite.getRegionHeight() * Math.abs(currSprite.getScaleY()) / 2);
+			}
+			if (hp >= 0) {
+				halfWidth = Math.max(halfWidth, healthbar[0].getWidth() * healthbar[0].getScaleX() / 2);
+				halfHeight = Math.max(halfHeight, HEALTHBAR_OFFSET + healthbar[0].getHeight() * healthbar[0].getScaleY() / 2);
+			}
+			if (!isVisible(x + offset.x, y + offset.y, halfWidth, halfHeight)) {
+				culledEntities++;
 				continue;
 			}
+			drawnEntities++;
+
+			// The big background layers don't need blending, switching only
+			// flushes the batch when the next entity is different
+			boolean opaque = snapshot.opaque[body];
+			if (opaque == batch.isBlendingEnabled()) {
+				if (opaque) {
+					batch.disableBlending();
+				} else {
+					batch.enableBlending();
+				}
+			}
+
 			// Draw entity
-			for (String channel : renderedObject.getChannels()) {
-				SpriteSequence currSequence = renderedObject.getSequence(renderedObject.getCurrentSequence(channel));
-				int currFrame = (int) Math.floor(renderedObject.getCurrentFrame(channel));
-				Sprite currSprite = currSequence.getSprite(currFrame);
+			for (int channel = 0; channel < snapshot.channelCount[body]; channel++) {
+				Sprite currSprite = getCurrentSprite(snapshot, body, channel);
 
 				int spriteHeight = currSprite.getRegionHeight();
 				int spriteWidth = currSprite.getRegionWidth();
 
-				currSprite.setPosition(((physics.getPosition().x - spriteWidth / 2) + getCameraOffset(playerPhys, physics).x),
-						(physics.getPosition().y - spriteHeight / 2) + getCameraOffset(playerPhys, physics).y);
+				currSprite.setPosition(((x - spriteWidth / 2) + offset.x),
+						(y - spriteHeight / 2) + offset.y);
 				currSprite.draw(batch);
-
-				float nextFrame = renderedObject.getCurrentFrame(channel) + deltaTime * currSequence.getPlayspeed();
-				renderedObject.setCurrentFrame(channel, nextFrame % currSequence.frameCount());
 			}
 
 			// Draw healthbars
-			CCombat combat = cm.get(entities.get(i));
-			if (combat != null) {
-				if (!healthbarLoaded) {
-					loadHealthbarSprites();
-				}
+			if (hp >= 0) {
 				float spriteWidth = healthbar[0].getWidth();
 				float spriteHeight = healthbar[0].getHeight();
-				float hp = (float) combat.getHealth() / (float) combat.getMaxHealth();
 
-				healthbar[0].setPosition(((physics.getPosition().x - spriteWidth / 2) + getCameraOffset(playerPhys, physics).x),
-						(physics.getPosition().y - spriteHeight / 2 + 2.5f) + getCameraOffset(playerPhys, physics).y);
+				healthbar[0].setPosition(((x - spriteWidth / 2) + offset.x),
+						(y - spriteHeight / 2 + HEALTHBAR_OFFSET) + offset.y);
 				healthbar[0].draw(batch);
-				healthbar[1].setPosition(((physics.getPosition().x - spriteWidth / 2) + getCameraOffset(playerPhys, physics).x),
-						(physics.getPosition().y - spriteHeight / 2 + 2.5f) + getCameraOffset(playerPhys, physics).y);
+				healthbar[1].setPosition(((x - spriteWidth / 2) + offset.x),
+						(y - spriteHeight / 2 + HEALTHBAR_OFFSET) + offset.y);
 				healthbar[1].setSize(spriteWidth * hp, spriteHeight);
 				healthbar[1].draw(batch);
-				healthbar[2].setPosition(((physics.getPosition().x - spriteWidth / 2) + getCameraOffset(playerPhys, physics).x),
-						(physics.getPosition().y - spriteHeight / 2 + 2.5f) + getCameraOffset(playerPhys, physics).y);
+				healthbar[2].setPosition(((x - spriteWidth / 2) + offset.x),
+						(y - spriteHeight / 2 + HEALTHBAR_OFFSET) + offset.y);
 				healthbar[2].draw(batch);
 			}
 		}
+		batch.enableBlending();
+		renderParticles(snapshot);
 		batch.end();
 	}
 
-	private void renderGUI(Vector2 rootPosition) {
+	private Sprite getCurrentSprite(RenderSnapshot snapshot, int body, int channel) {
+		int index = body * CRenderedObject.MAX_CHANNELS + channel;
+		return snapshot.animations[body].getSequence(snapshot.sequences[index])
+				.getSprite((int) Math.floor(snapshot.frames[index]));
+	}
+
+	/**
+	 * @return The value between the previous and the current physics step
+	 * that is drawn this frame
+	 */
+	private float interpolate(float previous, float current) {
+		return previous + (current - previous) * interpolationAlpha;
+	}
+
+	/**
+	 * Checks if a box overlaps the part of the world the camera sees.
+	 *
+	 * @param x Centre of the box, in camera coordinates (including the camera
+	 * offset)
+	 * @param y Centre of the box, in camera coordinates
+	 * @param halfWidth
+	 * @param halfHeight
+	 * @return True if some of the box is on the screen
+	 */
+	private boolean isVisible(float x, float y, float halfWidth, float halfHeight) {
+		return x + halfWidth >= viewLeft && x - halfWidth <= viewRight
+				&& y + halfHeight >= viewBottom && y - halfHeight <= viewTop;
+	}
+
+	private void renderGUI() {
 		batch.setProjectionMatrix(camera.combined);
 		batch.begin();
-		renderGUINode(AppUtil.guiManager.getRootNode(), rootPosition);
+		renderGUINode(AppUtil.guiManager.getRootNode(), 0, 0);
 		batch.end();
 	}
 
-	private void renderGUINode(GUINode node, Vector2 position) {
+	private void renderGUINode(GUINode node, float x, float y) {
 		if (!node.isVisible()) {
 			return;
 		}
-		position.add(node.getPosition());
+		x += node.getPosition().x;
+		y += node.getPosition().y;
 		if (node instanceof ImageProperty) {
 			Sprite s = ((ImageProperty) node).getImage();
-			s.setPosition(position.x * AppUtil.VPHEIGHT_CONST * aspectratio - s.getWidth() / 2 + camera.position.x,
-					position.y * AppUtil.VPHEIGHT_CONST - s.getHeight() / 2 + camera.position.y);
+			s.setPosition(x * AppUtil.VPHEIGHT_CONST * aspectratio - s.getWidth() / 2 + camera.position.x,
+					y * AppUtil.VPHEIGHT_CONST - s.getHeight() / 2 + camera.position.y);
 			s.draw(batch);
 		}
 		if (node instanceof TextNode) {
-			drawString(((TextProperty) node).getText(), new Vector2(position.x * AppUtil.VPHEIGHT_CONST * aspectratio + camera.position.x,
-					position.y * AppUtil.VPHEIGHT_CONST + camera.position.y));
+			drawCachedText((TextProperty) node, x * AppUtil.VPHEIGHT_CONST * aspectratio + camera.position.x,
+					y * AppUtil.VPHEIGHT_CONST + camera.position.y);
 		}
-		for (GUINode child : node.getChildren()) {
-			renderGUINode(child, new Vector2(position));
+		for (int i = 0; i < node.getChildren().size(); i++) {
+			renderGUINode(node.getChildren().get(i), x, y);
 		}
 	}
 
-	private void renderParticles() {
-		if (AppUtil.player == null) {
+	/**
+	 * Adds the text to the text rendered this frame. The glyphs are only laid
+	 * out again when the text has changed since the previous frame.
+	 *
+	 * @param property The text to draw
+	 * @param x
+	 * @param y
+	 */
+	private void drawCachedText(TextProperty property, float x, float y) {
+		String text = property.getText();
+		if (text == null) {
 			return;
 		}
-		CPhysics playerPhys = pm.get(AppUtil.player);
-		particleRenderer.setProjectionMatrix(camera.combined);
-		particleRenderer.begin(ShapeType.Filled);
-		for (int i = 0; i < entities.size(); i++) {
-			CParticle particle = pam.get(entities.get(i));
-			if (particle == null) {
+		CachedText cached = textCaches.get(property);
+		if (cached == null) {
+			cached = new CachedText(font);
+			textCaches.put(property, cached);
+		}
+		if (!text.equals(cached.text)) {
+			cached.cache.setText(text, x * Global.FONT_SCALE, y * Global.FONT_SCALE);
+			cached.text = text;
+		} else {
+			cached.cache.setPosition(x * Global.FONT_SCALE, y * Global.FONT_SCALE);
+		}
+		cached.used = true;
+		drawableCaches.add(cached.cache);
+	}
+
+	/**
+	 * Draws the particles as tinted quads of a white sprite, in the same batch
+	 * as the entities. Must be called between batch.begin() and batch.end().
+	 */
+	private void renderParticles(RenderSnapshot snapshot) {
+		if (particleRegion == null) {
+			particleRegion = SpriteLoader.getRegion(Name.WHITE);
+		}
+		Vector2 offset = getCameraOffset(1);
+		drawnParticles = 0;
+		culledParticles = 0;
+		for (int i = 0; i < snapshot.particleCount; i++) {
+			float x = snapshot.particleX[i], y = snapshot.particleY[i];
+			float width = snapshot.particleWidth[i], height = snapshot.particleHeight[i];
+			if (!isVisible(x + offset.x, y + offset.y, width / 2, height / 2)) {
+				culledParticles++;
 				continue;
 			}
+			drawnParticles++;
 
-			particleRenderer.setColor(particle.getColor());
-			particleRenderer.rect(particle.getPosition().x - particle.getSize().x / 2 + getCameraOffset(playerPhys).x,
-					particle.getPosition().y - particle.getSize().y / 2 + getCameraOffset(playerPhys).y,
-					particle.getSize().x, particle.getSize().y);
+			batch.setColor(snapshot.particleColor[i]);
+			batch.draw(particleRegion, x - width / 2 + offset.x, y - height / 2 + offset.y, width, height);
 		}
-		particleRenderer.end();
+		batch.setColor(Color.WHITE);
 	}
 
-	private void renderDebug() {
+	private void renderDebug(RenderSnapshot snapshot) {
 		if (debug) {
-			if (AppUtil.player == null) {
+			if (!snapshot.hasCameraTarget) {
 				return;
 			}
-			CPhysics playerPhys = pm.get(AppUtil.player);
 			debugRenderer.setProjectionMatrix(camera.combined);
 			debugRenderer.begin(ShapeType.Line);
-			for (int i = 0; i < entities.size(); i++) {
-				CPhysics physics = pm.get(entities.get(i));
-				if (physics == null) {
+			for (int body = 0; body < snapshot.bodyCount; body++) {
+				float x = interpolate(snapshot.previousX[body], snapshot.positionX[body]);
+				float y = interpolate(snapshot.previousY[body], snapshot.positionY[body]);
+				Vector2 offset = getCameraOffset(snapshot.zParallax[body]);
+				float reactDistance = snapshot.reactDistance[body];
+				float halfWidth = snapshot.sizeX[body] / 2, halfHeight = snapshot.sizeY[body] / 2;
+				if (!isVisible(x + offset.x, y + offset.y, Math.max(halfWidth, reactDistance),
+						Math.max(halfHeight, reactDistance))) {
 					continue;
 				}
 
-				float x0 = physics.getPosition().x - physics.getSize().x / 2 + getCameraOffset(playerPhys, physics).x;
-				float x1 = physics.getPosition().x + physics.getSize().x / 2 + getCameraOffset(playerPhys, physics).x;
-				float y0 = physics.getPosition().y - physics.getSize().y / 2 + getCameraOffset(playerPhys, physics).y;
-				float y1 = physics.getPosition().y + physics.getSize().y / 2 + getCameraOffset(playerPhys, physics).y;
+				float x0 = x - halfWidth + offset.x;
+				float x1 = x + halfWidth + offset.x;
+				float y0 = y - halfHeight + offset.y;
+				float y1 = y + halfHeight + offset.y;
 
 				debugRenderer.setColor(debugColor);
 				debugRenderer.line(x0, y0, x1, y0);
@@ -363,23 +601,102 @@ public class RenderingSystem extends EntitySystem {
 				debugRenderer.line(x1, y1, x0, y1);
 				debugRenderer.line(x0, y1, x0, y0);
 
-				CAI ai = aim.get(entities.get(i));
-				if (ai == null) {
+				if (reactDistance < 0) {
 					continue;
 				}
-				float x = physics.getPosition().x + getCameraOffset(playerPhys, physics).x;
-				float y = physics.getPosition().y + getCameraOffset(playerPhys, physics).y;
 
 				debugRenderer.setColor(debugAIColor);
-				debugRenderer.circle(x, y, ai.getReactDistance());
+				debugRenderer.circle(x + offset.x, y + offset.y, reactDistance);
+			}
+
+			// The swing hitboxes aren't bodies, but are in the same plane as the fighters
+			Vector2 offset = getCameraOffset(1);
+			debugRenderer.setColor(debugColor);
+			for (int h = 0; h < snapshot.hitboxCount; h++) {
+				debugRenderer.rect(snapshot.hitboxX[h] - snapshot.hitboxWidth[h] / 2 + offset.x,
+						snapshot.hitboxY[h] - snapshot.hitboxHeight[h] / 2 + offset.y,
+						snapshot.hitboxWidth[h], snapshot.hitboxHeight[h]);
 			}
 			debugRenderer.end();
 		}
 	}
 
+	/**
+	 * Draws the update times of the systems as a stacked bar, and lists their
+	 * statistics and the sizes of the entity families below it.
+	 *
+	 * @param x Left side of the overlay
+	 * @param y Top of the overlay
+	 */
+	private void renderProfiler(float x, float y) {
+		float line = y - 1;
+		if (AppUtil.engine instanceof ProfiledEngine) {
+			ProfiledEngine engine = (ProfiledEngine) AppUtil.engine;
+			ImmutableArray<EntitySystem> systems = engine.getSystems();
+			debugRenderer.setProjectionMatrix(camera.combined);
+			debugRenderer.begin(ShapeType.Filled);
+			float barX = x;
+			for (int i = 0; i < systems.size(); i++) {
+				RollingWindow times = engine.getSystemTimes(systems.get(i));
+				debugRenderer.setColor(PROFILER_COLORS[i % PROFILER_COLORS.length]);
+				debugRenderer.rect(barX, y - 0.6f, times.getLatest() * PROFILER_BAR_SCALE, 0.5f);
+				debugRenderer.rect(x - 0.8f, line - i - 0.7f, 0.5f, 0.5f);
+				barX += times.getLatest() * PROFILER_BAR_SCALE;
+			}
+			debugRenderer.end();
+			debugRenderer.begin(ShapeType.Line);
+			debugRenderer.setColor(Color.WHITE);
+			debugRenderer.line(x + FRAME_BUDGET * PROFILER_BAR_SCALE, y - 0.8f, x + FRAME_BUDGET * PROFILER_BAR_SCALE, y);
+			debugRenderer.end();
+
+			for (int i = 0; i < systems.size(); i++) {
+				debugText.setLength(0);
+				debugText.append(systems.get(i).getClass().getSimpleName()).append(" (ms): ");
+				appendTimes(debugText, engine.getSystemTimes(systems.get(i)));
+				drawString(debugText, x, line--);
+			}
+
+			debugText.setLength(0);
+			debugText.append("Entities:");
+			for (int i = 0; i < engine.getFamilyCount(); i++) {
+				debugText.append(' ').append(engine.getFamilyName(i)).append(' ').append(engine.getFamilySize(i));
+			}
+			drawString(debugText, x, line--);
+		}
+
+		debugText.setLength(0);
+		debugText.append("Drawing (ms): ");
+		appendTimes(debugText, drawTimes);
+		drawString(debugText, x, line--);
+		debugText.setLength(0);
+		debugText.append("Render calls: ").append(frameRenderCalls).append(", total ").append(batch.totalRenderCalls);
+		drawString(debugText, x, line);
+	}
+
+	/**
+	 * Appends the min, average and max of the times, with two decimals and
+	 * without creating garbage.
+	 */
+	private static void appendTimes(StringBuilder builder, RollingWindow times) {
+		appendMillis(builder, times.getMin());
+		builder.append(" / ");
+		appendMillis(builder, times.getAverage());
+		builder.append(" / ");
+		appendMillis(builder, times.getMax());
+	}
+
+	private static void appendMillis(StringBuilder builder, float millis) {
+		int hundredths = Math.round(millis * 100);
+		builder.append(hundredths / 100).append('.');
+		if (hundredths % 100 < 10) {
+			builder.append('0');
+		}
+		builder.append(hundredths % 100);
+	}
+
 	/**
 	 * This is the main method that actually _renders_ the text. Use
-	 * "drawString(str, pos)" method to add a string to a list that will be
+	 * "drawString(str, x, y)" method to add a string to a list that will be
 	 * rendered here.
 	 *
 	 * @param camera
@@ -387,15 +704,44 @@ public class RenderingSystem extends EntitySystem {
 	private void renderFont(Camera fontCamera) {
 		batch.setProjectionMatrix(fontCamera.combined);
 		batch.begin();
-		for (TextObject obj : drawableText) {
-			font.draw(batch, obj.text, obj.position.x * Global.FONT_SCALE, obj.position.y * Global.FONT_SCALE);
+		for (int i = 0; i < drawableCaches.size; i++) {
+			drawableCaches.get(i).draw(batch);
+		}
+		for (int i = 0; i < drawableText.size; i++) {
+			TextObject obj = drawableText.get(i);
+			font.draw(batch, obj.text, obj.x * Global.FONT_SCALE, obj.y * Global.FONT_SCALE);
 		}
-		drawableText.clear();
 		batch.end();
+
+		textPool.freeAll(drawableText);
+		drawableText.clear();
+		drawableCaches.clear();
+
+		// Forget the layouts of the text that is no longer in the GUI
+		ObjectMap.Values<CachedText> caches = textCaches.values();
+		while (caches.hasNext()) {
+			CachedText cached = caches.next();
+			if (!cached.used) {
+				caches.remove();
+			}
+			cached.used = false;
+		}
 	}
 
-	public void drawString(String text, Vector2 position) {
-		drawableText.add(new TextObject(text, position));
+	/**
+	 * Draws the text during this frame. The text is copied, so the caller can
+	 * reuse its StringBuilder right away.
+	 *
+	 * @param text
+	 * @param x
+	 * @param y
+	 */
+	public void drawString(CharSequence text, float x, float y) {
+		TextObject obj = textPool.obtain();
+		obj.text.append(text);
+		obj.x = x;
+		obj.y = y;
+		drawableText.add(obj);
 	}
 
 	public void updateEntities(Engine engine) {
@@ -411,6 +757,21 @@ public class RenderingSystem extends EntitySystem {
 		healthbar[2] = SpriteLoader.loadSprite(Name.HEALTHBARIMG, 0, 2, 32, 8);
 	}
 
+	/**
+	 * @param threaded Toggles if the engine is updated on a thread of its own.
+	 * When it is, update() only takes the snapshots and render() has to be
+	 * called on the GL thread.
+	 * @return Returns the instance this methdod was called from
+	 */
+	public RenderingSystem setThreaded(boolean threaded) {
+		this.threaded = threaded;
+		return this;
+	}
+
+	public boolean isThreaded() {
+		return this.threaded;
+	}
+
 	public boolean getDebug() {
 		return this.debug;
 	}
@@ -423,18 +784,47 @@ public class RenderingSystem extends EntitySystem {
 		return new Vector2(this.camera.position.x, this.camera.position.y);
 	}
 
-	private Vector2 getCameraOffset(CPhysics playerPhys) {
-		Vector2 offset = new Vector2(Math.max(xMin + camera.viewportWidth / 2, Math.min(xMax - camera.viewportWidth / 2,
-				-playerPhys.getPosition().x)) + camera.viewportWidth / 2,
-				-playerPhys.getPosition().y + camera.viewportHeight / 3);
-		return offset;
+	/**
+	 * Forgets the camera offsets of the previous frame. Called once per frame
+	 * after the camera target has moved.
+	 */
+	private void updateCameraOffsets() {
+		cameraShiftX = Math.max(xMin + camera.viewportWidth / 2, Math.min(xMax - camera.viewportWidth / 2,
+				-cameraTarget.x));
+		cameraShiftY = -cameraTarget.y;
+		layerCount = 0;
+
+		float halfWidth = camera.viewportWidth * camera.zoom / 2, halfHeight = camera.viewportHeight * camera.zoom / 2;
+		viewLeft = camera.position.x - halfWidth;
+		viewRight = camera.position.x + halfWidth;
+		viewBottom = camera.position.y - halfHeight;
+		viewTop = camera.position.y + halfHeight;
 	}
 
-	private Vector2 getCameraOffset(CPhysics playerPhys, CPhysics currPhys) {
-		Vector2 offset = new Vector2(Math.max(xMin + camera.viewportWidth / 2, Math.min(xMax - camera.viewportWidth / 2,
-				-playerPhys.getPosition().x)) / currPhys.getZParallax() + camera.viewportWidth / 2,
-				-playerPhys.getPosition().y / currPhys.getZParallax() + camera.viewportHeight / 3);
-		return offset;
+	/**
+	 * Returns the offset that moves things on a parallax layer to the camera.
+	 * The offset of each layer is only calculated once per frame.
+	 *
+	 * @param zParallax The parallax of the layer, 1 for the layer the fighters
+	 * are on
+	 * @return A vector shared by all the calls, valid until the next call
+	 */
+	private Vector2 getCameraOffset(float zParallax) {
+		for (int i = 0; i < layerCount; i++) {
+			if (layerParallax[i] == zParallax) {
+				return cameraOffset.set(layerOffsetX[i], layerOffsetY[i]);
+			}
+		}
+		if (layerCount == layerParallax.length) {
+			layerParallax = Arrays.copyOf(layerParallax, layerCount * 2);
+			layerOffsetX = Arrays.copyOf(layerOffsetX, layerCount * 2);
+			layerOffsetY = Arrays.copyOf(layerOffsetY, layerCount * 2);
+		}
+		int layer = layerCount++;
+		layerParallax[layer] = zParallax;
+		layerOffsetX[layer] = cameraShiftX / zParallax + camera.viewportWidth / 2;
+		layerOffsetY[layer] = cameraShiftY / zParallax + camera.viewportHeight / 3;
+		return cameraOffset.set(layerOffsetX[layer], layerOffsetY[layer]);
 	}
 
 	public float getXMin() {
@@ -458,18 +848,29 @@ public class RenderingSystem extends EntitySystem {
 	public void dispose() {
 		batch.dispose();
 		debugRenderer.dispose();
-		particleRenderer.dispose();
 		font.dispose();
 	}
 
-	private class TextObject {
+	private static class TextObject implements Pool.Poolable {
+
+		public final StringBuilder text = new StringBuilder();
+		public float x, y;
+
+		@Override
+		public void reset() {
+			text.setLength(0);
+		}
+	}
+
+	private static class CachedText {
 
+		public final BitmapFontCache cache;
+		// The text the cache was laid out with
 		public String text;
-		public Vector2 position;
+		public boolean used = false;
 
-		public TextObject(String text, Vector2 position) {
-			this.text = text;
-			this.position = position;
+		public CachedText(BitmapFont font) {
+			this.cache = new BitmapFontCache(font);
 		}
 	}
 
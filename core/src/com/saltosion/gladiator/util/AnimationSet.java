@@ -0,0 +1,106 @@
+/**
+ * GladiatorBrawler is a 2D swordfighting game.
+ * Copyright (C) 2015 Jeasonfire/Allexit
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.saltosion.gladiator.util;
+
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A named collection of sprite sequences, usually all the animations cut from
+ * one sprite sheet. A set can't be changed once it has been created, so a
+ * single set can be shared by every CRenderedObject that uses the same
+ * sprites.
+ *
+ * Every sequence also has an integer id, its index in the set. Code that
+ * changes animations every frame should look the ids up once and use them
+ * instead of the names.
+ */
+public class AnimationSet {
+
+	public static final int NO_SEQUENCE = -1;
+
+	private final HashMap<String, Integer> ids = new HashMap<String, Integer>();
+	private final String[] names;
+	private final SpriteSequence[] sequences;
+
+	/**
+	 * @param sequences The sequences of the set by their names. The first one
+	 * is the default sequence and gets the id 0.
+	 */
+	public AnimationSet(Map<String, SpriteSequence> sequences) {
+		this.names = new String[sequences.size()];
+		this.sequences = new SpriteSequence[sequences.size()];
+		int id = 0;
+		for (Map.Entry<String, SpriteSequence> entry : sequences.entrySet()) {
+			this.ids.put(entry.getKey(), id);
+			this.names[id] = entry.getKey();
+			this.sequences[id] = entry.getValue();
+			id++;
+		}
+	}
+
+	/**
+	 * A set of a single static image, called "Idle".
+	 *
+	 * @param sprite
+	 */
+	public AnimationSet(Sprite sprite) {
+		this(Collections.singletonMap("Idle", new SpriteSequence(sprite)));
+	}
+
+	/**
+	 * @param key The name of the sequence
+	 * @return The id of the sequence, or NO_SEQUENCE if there is no sequence
+	 * with the name
+	 */
+	public int getId(String key) {
+		Integer id = ids.get(key);
+		return id == null ? NO_SEQUENCE : id;
+	}
+
+	/**
+	 * @param id
+	 * @return The name of the sequence, or "" if the id isn't in the set
+	 */
+	public String getName(int id) {
+		if (id < 0 || id >= names.length) {
+			return "";
+		}
+		return names[id];
+	}
+
+	public SpriteSequence getSequence(int id) {
+		return sequences[id];
+	}
+
+	public SpriteSequence getSequence(String key) {
+		int id = getId(key);
+		return id == NO_SEQUENCE ? null : sequences[id];
+	}
+
+	public boolean hasSequence(String key) {
+		return ids.containsKey(key);
+	}
+
+	public int size() {
+		return sequences.length;
+	}
+
+}
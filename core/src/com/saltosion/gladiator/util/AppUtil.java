@@ -24,17 +24,25 @@ import com.saltosion.gladiator.gui.GUIManager;
 import com.saltosion.gladiator.input.InputHandler;
 import com.saltosion.gladiator.level.EntityFactory;
 import com.saltosion.gladiator.level.LevelFactory;
+import com.saltosion.gladiator.systems.BasePhysicsSystem;
 
 public class AppUtil {
 
 	public static Entity player;
 	public static Engine engine;
+	public static BasePhysicsSystem physicsSystem;
 	public static Jukebox jukebox;
 	public static EntityFactory entityFactory;
 	public static LevelFactory levelFactory;
 	public static GUIManager guiManager;
 	public static InputHandler inputHandler;
 
+	/**
+	 * Held while the engine or its entities are changed. Only contended when
+	 * the engine runs on a SimulationThread.
+	 */
+	public static final Object engineLock = new Object();
+
 	public static final int VPHEIGHT_CONST = 24;
 
 	public static float sfxVolume = 0.3f;
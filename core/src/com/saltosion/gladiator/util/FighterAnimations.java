@@ -0,0 +1,106 @@
+/**
+ * GladiatorBrawler is a 2D swordfighting game.
+ * Copyright (C) 2015 Jeasonfire/Allexit
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.saltosion.gladiator.util;
+
+import com.saltosion.gladiator.components.CRenderedObject;
+
+/**
+ * The animation state machine of the fighters. The ids of the sequences are
+ * looked up once for every state and direction, after that picking the
+ * animations of a fighter doesn't build or compare any strings.
+ *
+ * The fighters have two channels: the legs are drawn first, then the torso.
+ */
+public class FighterAnimations {
+
+	public static final int CHANNEL_LEGS = 0, CHANNEL_TORSO = 1;
+	public static final int IDLE = 0, RUN = 1, JUMP = 2;
+
+	private static final String[] CHANNEL_NAMES = {"Legs", "Torso"};
+	private static final String[] STATE_NAMES = {"Idle", "Run", "Jump"};
+	private static final int FACING_RIGHT = 0, FACING_LEFT = 1;
+	private static final String[] FACING_NAMES = {"Right", "Left"};
+
+	private final AnimationSet animations;
+	// Sequence ids by [channel][state][facing]
+	private final int[][][] sequences = new int[CHANNEL_NAMES.length][STATE_NAMES.length][FACING_NAMES.length];
+	// Torso combat sequence ids by [facing][swing direction]
+	private final int[][] swings = new int[FACING_NAMES.length][Direction.values().length];
+
+	public FighterAnimations(AnimationSet animations) {
+		this.animations = animations;
+		for (int channel = 0; channel < CHANNEL_NAMES.length; channel++) {
+			for (int state = 0; state < STATE_NAMES.length; state++) {
+				for (int facing = 0; facing < FACING_NAMES.length; facing++) {
+					sequences[channel][state][facing] = animations.getId(CHANNEL_NAMES[channel] + "-"
+							+ STATE_NAMES[state] + "-" + FACING_NAMES[facing]);
+				}
+			}
+		}
+		for (int facing = 0; facing < FACING_NAMES.length; facing++) {
+			for (Direction direction : Direction.values()) {
+				String swing;
+				switch (direction) {
+					case LEFT:
+						swing = "Left";
+						break;
+					case UP:
+						swing = FACING_NAMES[facing] + "-Up";
+						break;
+					case DOWN:
+						swing = FACING_NAMES[facing] + "-Down";
+						break;
+					default:
+						swing = "Right";
+						break;
+				}
+				swings[facing][direction.ordinal()] = animations.getId("Torso-Combat-" + swing);
+			}
+		}
+	}
+
+	/**
+	 * Plays the animations that match what the fighter is doing.
+	 *
+	 * @param ro The rendered object of the fighter
+	 * @param moving True if the fighter is walking
+	 * @param grounded True if the fighter is standing on something
+	 * @param facingLeft True if the fighter last moved to the left
+	 * @param swing The direction of the swing, or null if the fighter isn't
+	 * swinging
+	 */
+	public void animate(CRenderedObject ro, boolean moving, boolean grounded, boolean facingLeft, Direction swing) {
+		int facing = facingLeft ? FACING_LEFT : FACING_RIGHT;
+		int state = moving ? RUN : IDLE;
+
+		if (swing != null) {
+			ro.playAnimation(CHANNEL_TORSO, swings[facing][swing.ordinal()]);
+		} else {
+			ro.playAnimation(CHANNEL_TORSO, sequences[CHANNEL_TORSO][state][facing]);
+		}
+		ro.playAnimation(CHANNEL_LEGS, sequences[CHANNEL_LEGS][grounded ? state : JUMP][facing]);
+	}
+
+	/**
+	 * @return The set the ids of this state machine are from
+	 */
+	public AnimationSet getAnimations() {
+		return this.animations;
+	}
+
+}
@@ -26,6 +26,17 @@ public class Global {
 
 	public static final int FLAG_ALIVE = 1;
 
+	/**
+	 * Collision layers. A body only processes collisions with bodies whose
+	 * layer is in its collision mask.
+	 */
+	public static final int LAYER_DEFAULT = 1;
+	public static final int LAYER_FIGHTER = 1 << 1;
+	public static final int LAYER_GROUND = 1 << 2;
+	public static final int LAYER_BORDER = 1 << 3;
+	public static final int LAYER_SCENERY = 1 << 4;
+	public static final int LAYER_ALL = ~0;
+
 	public static final int HIGH_GORE = 5;
 	public static final int LOW_GORE = 1;
 	public static final int NO_GORE = 0;
@@ -17,6 +17,7 @@
  */
 package com.saltosion.gladiator.util;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.audio.Music;
 import com.badlogic.gdx.audio.Sound;
 
@@ -24,6 +25,9 @@ public class Jukebox {
 
 	private Music currentMusic;
 	private float volume = 1;
+	// The jukebox is created on the GL thread, sounds played on other threads
+	// are passed to it
+	private final Thread glThread = Thread.currentThread();
 
 	/**
 	 * Plays the musix like a baws.
@@ -68,6 +72,9 @@ public class Jukebox {
 	 * @return long returns sound's id
 	 */
 	public long playSound(Sound sound) {
+		if (Thread.currentThread() != glThread) {
+			return postSound(sound, 1, 0);
+		}
 		return sound.play();
 	}
 
@@ -79,6 +86,9 @@ public class Jukebox {
 	 * @return long returns sound's id
 	 */
 	public long playSound(Sound sound, float volume) {
+		if (Thread.currentThread() != glThread) {
+			return postSound(sound, volume, 0);
+		}
 		long id = playSound(sound);
 		sound.setVolume(id, volume);
 		return id;
@@ -93,11 +103,29 @@ public class Jukebox {
 	 * @return long returns sound's id
 	 */
 	public long playSound(Sound sound, float volume, float pan) {
+		if (Thread.currentThread() != glThread) {
+			return postSound(sound, volume, pan);
+		}
 		long id = playSound(sound);
 		sound.setPan(id, pan, volume);
 		return id;
 	}
 
+	/**
+	 * Plays the sound on the GL thread before the next frame
+	 *
+	 * @return -1, as the sound doesn't have an id yet
+	 */
+	private long postSound(final Sound sound, final float volume, final float pan) {
+		Gdx.app.postRunnable(new Runnable() {
+			@Override
+			public void run() {
+				playSound(sound, volume, pan);
+			}
+		});
+		return -1;
+	}
+
 	public Sound returnRandomSound(Sound... args) {
 		return args[(int) Math.floor(Math.random() * args.length)];
 	}
@@ -31,6 +31,7 @@ public class Name {
 	public static final String SWINGHITBOXIMG = "SWINGHITBOXIMG";
 	public static final String AUDIENCEIMG = "AUDIENCEIMG";
 	public static final String HEALTHBARIMG = "HEALTHBARIMG";
+	public static final String WHITE = "WHITE";
 
 	public static final String BUTTON_HUGE = "BUTTON_HUGE";
 	public static final String BUTTON_HUGE_HOVER = "BUTTON_HUGE_HOVER";
@@ -0,0 +1,133 @@
+/**
+ * GladiatorBrawler is a 2D swordfighting game.
+ * Copyright (C) 2015 Jeasonfire/Allexit
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.saltosion.gladiator.util;
+
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntitySystem;
+import com.badlogic.ashley.core.Family;
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * An engine that measures how long each of its systems takes to update, for
+ * the debug overlay.
+ *
+ * The systems are updated one at a time, with only one of them processing
+ * during each pass of Engine.update(). The engine processes the entity changes
+ * after every system just like it does during a normal update, so the time of
+ * a system includes the changes it made.
+ *
+ * The measurements are written by the thread that updates the engine, and
+ * are only meant to be displayed.
+ */
+public class ProfiledEngine extends Engine {
+
+	// How many of the latest updates the statistics are calculated from
+	public static final int WINDOW_SIZE = 120;
+
+	private final ObjectMap<EntitySystem, RollingWindow> systemTimes = new ObjectMap<EntitySystem, RollingWindow>();
+	private boolean[] processing = new boolean[0];
+
+	private final Array<String> familyNames = new Array<String>();
+	private final Array<ImmutableArray<Entity>> families = new Array<ImmutableArray<Entity>>();
+	private int[] familySizes = new int[0];
+
+	@Override
+	public void addSystem(EntitySystem system) {
+		super.addSystem(system);
+		if (!systemTimes.containsKey(system)) {
+			systemTimes.put(system, new RollingWindow(WINDOW_SIZE));
+		}
+	}
+
+	@Override
+	public void removeSystem(EntitySystem system) {
+		super.removeSystem(system);
+		systemTimes.remove(system);
+	}
+
+	@Override
+	public void update(float deltaTime) {
+		ImmutableArray<EntitySystem> systems = getSystems();
+		if (processing.length < systems.size()) {
+			processing = new boolean[systems.size()];
+		}
+		for (int i = 0; i < systems.size(); i++) {
+			processing[i] = systems.get(i).checkProcessing();
+		}
+		for (int i = 0; i < families.size; i++) {
+			familySizes[i] = families.get(i).size();
+		}
+
+		try {
+			for (int i = 0; i < systems.size(); i++) {
+				if (!processing[i]) {
+					continue;
+				}
+				for (int j = 0; j < systems.size(); j++) {
+					systems.get(j).setProcessing(i == j);
+				}
+				long start = System.nanoTime();
+				super.update(deltaTime);
+				systemTimes.get(systems.get(i)).add((System.nanoTime() - start) / 1000000f);
+			}
+		} finally {
+			for (int i = 0; i < systems.size(); i++) {
+				systems.get(i).setProcessing(processing[i]);
+			}
+		}
+	}
+
+	/**
+	 * @param system
+	 * @return The latest update times of the system in milliseconds, null if
+	 * the system isn't in the engine
+	 */
+	public RollingWindow getSystemTimes(EntitySystem system) {
+		return systemTimes.get(system);
+	}
+
+	/**
+	 * Counts the entities of the family at the start of every update.
+	 *
+	 * @param name
+	 * @param family
+	 * @return Returns the instance this methdod was called from
+	 */
+	public ProfiledEngine addFamily(String name, Family family) {
+		familyNames.add(name);
+		families.add(getEntitiesFor(family));
+		familySizes = new int[families.size];
+		return this;
+	}
+
+	public int getFamilyCount() {
+		return familyNames.size;
+	}
+
+	public String getFamilyName(int family) {
+		return familyNames.get(family);
+	}
+
+	public int getFamilySize(int family) {
+		return familySizes[family];
+	}
+
+}
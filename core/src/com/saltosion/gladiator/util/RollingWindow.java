@@ -0,0 +1,71 @@
+/**
+ * GladiatorBrawler is a 2D swordfighting game.
+ * Copyright (C) 2015 Jeasonfire/Allexit
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.saltosion.gladiator.util;
+
+/**
+ * Keeps the latest values of a measurement, and gives their minimum, average
+ * and maximum.
+ */
+public class RollingWindow {
+
+	private final float[] values;
+	private int count = 0;
+	private int next = 0;
+
+	/**
+	 * @param size How many of the latest values are kept
+	 */
+	public RollingWindow(int size) {
+		this.values = new float[size];
+	}
+
+	public void add(float value) {
+		values[next] = value;
+		next = (next + 1) % values.length;
+		count = Math.min(count + 1, values.length);
+	}
+
+	public float getLatest() {
+		return count == 0 ? 0 : values[(next + values.length - 1) % values.length];
+	}
+
+	public float getMin() {
+		float min = count == 0 ? 0 : Float.MAX_VALUE;
+		for (int i = 0; i < count; i++) {
+			min = Math.min(min, values[i]);
+		}
+		return min;
+	}
+
+	public float getMax() {
+		float max = 0;
+		for (int i = 0; i < count; i++) {
+			max = Math.max(max, values[i]);
+		}
+		return max;
+	}
+
+	public float getAverage() {
+		float sum = 0;
+		for (int i = 0; i < count; i++) {
+			sum += values[i];
+		}
+		return count == 0 ? 0 : sum / count;
+	}
+
+}
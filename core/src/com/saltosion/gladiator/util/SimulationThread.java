@@ -0,0 +1,95 @@
+/**
+ * GladiatorBrawler is a 2D swordfighting game.
+ * Copyright (C) 2015 Jeasonfire/Allexit
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.saltosion.gladiator.util;
+
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * Updates the engine at a fixed rate on a thread of its own, so that the
+ * simulation doesn't take time from the frames. Every update is one physics
+ * step long. The rendering system publishes a snapshot of each update, which
+ * the GL thread draws.
+ *
+ * The engine and its entities must only be touched while holding
+ * AppUtil.engineLock.
+ */
+public class SimulationThread extends Thread {
+
+	// If the simulation falls further behind than this, the time is dropped
+	// instead of trying to catch up with it
+	private static final long MAX_LAG = 250000000L;
+
+	private final Engine engine;
+	private volatile boolean running = true;
+
+	public SimulationThread(Engine engine) {
+		super("Simulation");
+		setDaemon(true);
+		this.engine = engine;
+	}
+
+	@Override
+	public void run() {
+		long nextUpdate = System.nanoTime();
+		while (running) {
+			float deltaTime = 1f / AppUtil.physicsSystem.getUpdatesPerSecond();
+			try {
+				synchronized (AppUtil.engineLock) {
+					engine.update(deltaTime);
+				}
+			} catch (final Throwable ex) {
+				// Crash the game like the error would have without this thread
+				Gdx.app.postRunnable(new Runnable() {
+					@Override
+					public void run() {
+						throw new GdxRuntimeException("The simulation thread crashed", ex);
+					}
+				});
+				return;
+			}
+
+			nextUpdate += (long) (deltaTime * 1000000000L);
+			long wait = nextUpdate - System.nanoTime();
+			if (wait > 0) {
+				try {
+					Thread.sleep(wait / 1000000L, (int) (wait % 1000000L));
+				} catch (InterruptedException ex) {
+					return;
+				}
+			} else if (-wait > MAX_LAG) {
+				nextUpdate = System.nanoTime();
+			}
+		}
+	}
+
+	/**
+	 * Stops the simulation and waits until the current update has finished.
+	 */
+	public void shutdown() {
+		running = false;
+		interrupt();
+		try {
+			join();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
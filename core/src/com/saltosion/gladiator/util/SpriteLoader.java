@@ -22,11 +22,22 @@ import java.util.HashMap;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 
+/**
+ * Loads the sprites of the game. All the in-game sprites are packed into a
+ * single texture atlas (see the packTextures task of the core project), so
+ * that drawing them doesn't need to switch between textures. Only the splash
+ * screens, which are shown before the atlas is loaded, are separate textures.
+ */
 public class SpriteLoader {
 
+	private static final String ATLAS_PATH = "atlas/sprites.atlas";
+
 	private static final HashMap<String, Texture> textures = new HashMap<String, Texture>();
+	private static final HashMap<String, TextureRegion> regions = new HashMap<String, TextureRegion>();
+	private static TextureAtlas atlas;
 	public static boolean loadedAllSprites = false;
 
 	public static void preload() {
@@ -35,24 +46,26 @@ public class SpriteLoader {
 	}
 
 	public static void loadAll() {
-		loadTexture(Name.STATICPLAYER, "sprites/staticplayer.png");
-		loadTexture(Name.PLAYERIMG, "sprites/player/player.png");
-		loadTexture(Name.GROUNDIMG, "sprites/ground.png");
-		loadTexture(Name.WALLIMG, "sprites/wall.png");
-		loadTexture(Name.AUDIENCEIMG, "sprites/audience.png");
-		loadTexture(Name.HEALTHBARIMG, "sprites/player/healthbar.png");
-
-		loadTexture(Name.BUTTON_HUGE, "sprites/buttons/button_huge.png");
-		loadTexture(Name.BUTTON_HUGE_HOVER, "sprites/buttons/button_huge_hover.png");
-		loadTexture(Name.BUTTON_BIG, "sprites/buttons/button_big.png");
-		loadTexture(Name.BUTTON_BIG_HOVER, "sprites/buttons/button_big_hover.png");
-		loadTexture(Name.BUTTON_SMALL, "sprites/buttons/button_small.png");
-		loadTexture(Name.BUTTON_SMALL_HOVER, "sprites/buttons/button_small_hover.png");
-
-		loadTexture(Name.TITLE_LOGO, "sprites/title_logo.png");
-		loadTexture(Name.MENU_BACKGROUND, "sprites/menu_background.png");
-		loadTexture(Name.GPLV3_LOGO, "sprites/gplv3_logo.png");
-		loadTexture(Name.OSI_LOGO, "sprites/osi_logo.png");
+		atlas = new TextureAtlas(Gdx.files.internal(ATLAS_PATH));
+		loadRegion(Name.STATICPLAYER, "staticplayer");
+		loadRegion(Name.PLAYERIMG, "player/player");
+		loadRegion(Name.GROUNDIMG, "ground");
+		loadRegion(Name.WALLIMG, "wall");
+		loadRegion(Name.AUDIENCEIMG, "audience");
+		loadRegion(Name.HEALTHBARIMG, "player/healthbar");
+		loadRegion(Name.WHITE, "white");
+
+		loadRegion(Name.BUTTON_HUGE, "buttons/button_huge");
+		loadRegion(Name.BUTTON_HUGE_HOVER, "buttons/button_huge_hover");
+		loadRegion(Name.BUTTON_BIG, "buttons/button_big");
+		loadRegion(Name.BUTTON_BIG_HOVER, "buttons/button_big_hover");
+		loadRegion(Name.BUTTON_SMALL, "buttons/button_small");
+		loadRegion(Name.BUTTON_SMALL_HOVER, "buttons/button_small_hover");
+
+		loadRegion(Name.TITLE_LOGO, "title_logo");
+		loadRegion(Name.MENU_BACKGROUND, "menu_background");
+		loadRegion(Name.GPLV3_LOGO, "gplv3_logo");
+		loadRegion(Name.OSI_LOGO, "osi_logo");
 		loadedAllSprites = true;
 	}
 
@@ -67,7 +80,7 @@ public class SpriteLoader {
 	 * @return
 	 */
 	public static Sprite loadSprite(String texKey, int x, int y, int width, int height) {
-		TextureRegion tr = new TextureRegion(textures.get(texKey), x * width, y * height, width, height);
+		TextureRegion tr = new TextureRegion(regions.get(texKey), x * width, y * height, width, height);
 		Sprite s = new Sprite(tr);
 		s.setScale(Global.SPRITE_SCALE);
 		return s;
@@ -80,7 +93,8 @@ public class SpriteLoader {
 	 * @return
 	 */
 	public static Sprite loadSprite(String texKey) {
-		return loadSprite(texKey, 0, 0, textures.get(texKey).getWidth(), textures.get(texKey).getHeight());
+		TextureRegion region = regions.get(texKey);
+		return loadSprite(texKey, 0, 0, region.getRegionWidth(), region.getRegionHeight());
 	}
 
 	/**
@@ -93,9 +107,36 @@ public class SpriteLoader {
 	public static Texture loadTexture(String key, String filePath) {
 		Texture t = new Texture(Gdx.files.internal(filePath));
 		textures.put(key, t);
+		regions.put(key, new TextureRegion(t));
 		return t;
 	}
 
+	/**
+	 * Finds a region from the sprite atlas.
+	 *
+	 * @param key
+	 * @param regionName The path of the image in the sprites folder, without
+	 * the file extension
+	 * @return
+	 */
+	public static TextureRegion loadRegion(String key, String regionName) {
+		TextureRegion region = atlas.findRegion(regionName);
+		if (region == null) {
+			Log.error("Sprite atlas has no region called " + regionName);
+			return null;
+		}
+		regions.put(key, region);
+		return region;
+	}
+
+	/**
+	 * @param key
+	 * @return The whole region loaded with the key
+	 */
+	public static TextureRegion getRegion(String key) {
+		return regions.get(key);
+	}
+
 	/**
 	 * Disposes all the textures loaded so far.
 	 */
@@ -104,6 +145,9 @@ public class SpriteLoader {
 		for (Texture tex : textures.values()) {
 			tex.dispose();
 		}
+		if (atlas != null) {
+			atlas.dispose();
+		}
 	}
 
 }
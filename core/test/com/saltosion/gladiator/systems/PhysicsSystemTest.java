@@ -0,0 +1,104 @@
+/**
+ * GladiatorBrawler is a 2D swordfighting game.
+ * Copyright (C) 2015 Jeasonfire/Allexit
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.saltosion.gladiator.systems;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.saltosion.gladiator.components.CPhysics;
+import com.saltosion.gladiator.util.Global;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that idle bodies fall asleep and wake up again. The bodies are made
+ * like the ones of EntityFactory and LevelFactory, without the sprites.
+ */
+public class PhysicsSystemTest {
+
+	private static final int SLEEP_STEPS = 60;
+	// Long enough for the fighter to fall onto the ground
+	private static final int LANDING_STEPS = 20;
+
+	private Engine engine;
+	private PhysicsSystem physicsSystem;
+	private CPhysics fighter;
+
+	@Before
+	public void createArena() {
+		engine = new Engine();
+		physicsSystem = new PhysicsSystem().setSleepSteps(SLEEP_STEPS);
+		engine.addSystem(physicsSystem);
+
+		Entity ground = new Entity();
+		ground.add(new CPhysics().setMovable(false).setGravityApplied(false).setProcessCollisions(false)
+				.setCollisionLayer(Global.LAYER_GROUND).setCollisionMask(0).setSize(96, 8).setPosition(0, -4));
+		engine.addEntity(ground);
+
+		Entity entity = new Entity();
+		fighter = new CPhysics().setSize(1.5f, 3.299f).setPosition(0, 2)
+				.setCollisionLayer(Global.LAYER_FIGHTER).setCollisionMask(Global.LAYER_GROUND);
+		entity.add(fighter);
+		engine.addEntity(entity);
+		physicsSystem.updateEntities(engine);
+	}
+
+	private void step(int steps) {
+		for (int i = 0; i < steps; i++) {
+			engine.update(1f / physicsSystem.getUpdatesPerSecond());
+		}
+	}
+
+	private void fallAsleep() {
+		step(LANDING_STEPS + SLEEP_STEPS);
+		assertTrue("An idle fighter standing on the ground should fall asleep", fighter.isSleeping());
+	}
+
+	@Test
+	public void idleFighterFallsAsleep() {
+		step(LANDING_STEPS);
+		assertTrue("The fighter should have landed", fighter.isGrounded());
+		assertFalse("The fighter fell asleep before it had rested long enough", fighter.isSleeping());
+		step(SLEEP_STEPS);
+		assertTrue("An idle fighter standing on the ground should fall asleep", fighter.isSleeping());
+	}
+
+	@Test
+	public void inputWakesFighter() {
+		fallAsleep();
+		float x = fighter.getPosition().x;
+		fighter.movingRight = true;
+		step(1);
+		assertFalse("Input should wake the fighter up", fighter.isSleeping());
+		step(1);
+		assertTrue("The woken fighter should move", fighter.getPosition().x > x);
+	}
+
+	@Test
+	public void velocityWakesFighter() {
+		fallAsleep();
+		float y = fighter.getPosition().y;
+		fighter.setVelocity(0, 20);
+		assertFalse("Setting the velocity should wake the fighter up", fighter.isSleeping());
+		step(1);
+		assertTrue("The woken fighter should move", fighter.getPosition().y > y);
+	}
+
+}
@@ -5,6 +5,7 @@ import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
 import com.saltosion.gladiator.GladiatorBrawler;
 import com.saltosion.gladiator.util.Name;
+import java.util.Arrays;
 
 public class DesktopLauncher {
 
@@ -18,6 +19,10 @@ public class DesktopLauncher {
 		config.addIcon("sprites/icon_16.png", Files.FileType.Internal);
 		config.addIcon("sprites/icon_32.png", Files.FileType.Internal);
 		config.addIcon("sprites/icon_128.png", Files.FileType.Internal);
-		LwjglApplication app = new LwjglApplication(new GladiatorBrawler(), config);
+		// Run with --box2d to use the Box2D based physics
+		boolean box2dPhysics = Arrays.asList(args).contains("--box2d");
+		// Run with --threaded to simulate on a separate thread from rendering
+		boolean threaded = Arrays.asList(args).contains("--threaded");
+		LwjglApplication app = new LwjglApplication(new GladiatorBrawler(box2dPhysics, threaded), config);
 	}
 }